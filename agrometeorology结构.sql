@@ -69,6 +69,42 @@ CREATE TABLE `field_group`  (
   PRIMARY KEY (`id`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
 
+-- ----------------------------
+-- Table structure for historical_backfill_job
+-- ----------------------------
+DROP TABLE IF EXISTS `historical_backfill_job`;
+CREATE TABLE `historical_backfill_job`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '回填任务ID',
+  `years` int(11) NOT NULL COMMENT '回填年数',
+  `start_time` bigint(20) NOT NULL COMMENT '回填范围开始时间戳（含）',
+  `end_time` bigint(20) NOT NULL COMMENT '回填范围结束时间戳（不含）',
+  `cell_count` int(11) NOT NULL COMMENT '坐标网格数',
+  `status` int(11) NOT NULL COMMENT '状态 0:运行中 1:已完成 2:已取消',
+  `created_by` varchar(50) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '发起人用户名',
+  `created_at` datetime NOT NULL COMMENT '创建时间',
+  `updated_at` datetime NOT NULL COMMENT '更新时间',
+  `finished_at` datetime NULL DEFAULT NULL COMMENT '完成或取消时间',
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
+
+-- ----------------------------
+-- Table structure for historical_backfill_task
+-- ----------------------------
+DROP TABLE IF EXISTS `historical_backfill_task`;
+CREATE TABLE `historical_backfill_task`  (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '坐标进度ID',
+  `job_id` bigint(20) NOT NULL COMMENT '回填任务ID',
+  `latitude` decimal(10, 2) NOT NULL COMMENT '纬度',
+  `longitude` decimal(10, 2) NOT NULL COMMENT '经度',
+  `cursor_time` bigint(20) NOT NULL COMMENT '已回填到的时间戳，[cursor_time, 任务结束时间)已完成',
+  `completed` bit(1) NOT NULL COMMENT '是否已完成',
+  `failed_attempts` int(11) NOT NULL COMMENT '当前窗口连续失败次数',
+  `last_error` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '最近一次失败原因',
+  `updated_at` datetime NOT NULL COMMENT '更新时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_backfill_task_job`(`job_id`) USING BTREE
+) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
+
 -- ----------------------------
 -- Table structure for notification
 -- ----------------------------
@@ -100,6 +136,19 @@ CREATE TABLE `notification_setting`  (
   CONSTRAINT `FKbwsuroqorxx1boup2snb1t1u9` FOREIGN KEY (`user_id`) REFERENCES `user` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
 
+-- ----------------------------
+-- Table structure for revoked_token
+-- ----------------------------
+DROP TABLE IF EXISTS `revoked_token`;
+CREATE TABLE `revoked_token`  (
+  `token_id` varchar(128) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '令牌ID（jti），吊销用户全部令牌时为user:用户名',
+  `user_id` bigint(20) NULL DEFAULT NULL COMMENT '用户ID',
+  `revoked_at` datetime NOT NULL COMMENT '吊销时间',
+  `expires_at` datetime NOT NULL COMMENT '令牌过期时间，之后记录可清理',
+  PRIMARY KEY (`token_id`) USING BTREE,
+  INDEX `idx_revoked_token_revoked_at`(`revoked_at`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
+
 -- ----------------------------
 -- Table structure for system_config
 -- ----------------------------
@@ -135,6 +184,19 @@ CREATE TABLE `user`  (
   UNIQUE INDEX `UK_ob8kqyqqgmefl0aco34akdtpe`(`email`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
 
+-- ----------------------------
+-- Table structure for verification_code
+-- ----------------------------
+DROP TABLE IF EXISTS `verification_code`;
+CREATE TABLE `verification_code`  (
+  `email` varchar(100) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '邮箱',
+  `code` varchar(16) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '验证码，已使用或未发送时为空',
+  `expires_at` datetime NULL DEFAULT NULL COMMENT '验证码过期时间',
+  `next_send_at` datetime NULL DEFAULT NULL COMMENT '下次允许发送的时间',
+  `failed_attempts` int(11) NOT NULL COMMENT '当前验证码的错误次数',
+  PRIMARY KEY (`email`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
+
 -- ----------------------------
 -- Table structure for weather_current
 -- ----------------------------
@@ -173,6 +235,28 @@ CREATE TABLE `weather_current`  (
   UNIQUE INDEX `UKf490mp5tlo8xekcyuag0jy08h`(`latitude`, `longitude`, `dt`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
 
+-- ----------------------------
+-- Table structure for weather_current_latest
+-- ----------------------------
+DROP TABLE IF EXISTS `weather_current_latest`;
+CREATE TABLE `weather_current_latest`  (
+  `latitude` decimal(10, 2) NOT NULL COMMENT '纬度',
+  `longitude` decimal(10, 2) NOT NULL COMMENT '经度',
+  `dt` bigint(20) NOT NULL COMMENT '最新数据时间戳',
+  `current_id` bigint(20) NOT NULL COMMENT '最新实时天气ID',
+  `updated_at` datetime NOT NULL COMMENT '更新时间',
+  PRIMARY KEY (`latitude`, `longitude`) USING BTREE,
+  INDEX `FK_weather_current_latest_current`(`current_id`) USING BTREE,
+  CONSTRAINT `FK_weather_current_latest_current` FOREIGN KEY (`current_id`) REFERENCES `weather_current` (`id`) ON DELETE RESTRICT ON UPDATE RESTRICT
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
+
+-- 由已有weather_current数据回填快照（应用启动时也会在快照表为空时自动执行）
+INSERT IGNORE INTO `weather_current_latest` (`latitude`, `longitude`, `dt`, `current_id`, `updated_at`)
+SELECT w.`latitude`, w.`longitude`, w.`dt`, MAX(w.`id`), NOW() FROM `weather_current` w
+JOIN (SELECT `latitude`, `longitude`, MAX(`dt`) AS max_dt FROM `weather_current` GROUP BY `latitude`, `longitude`) m
+  ON w.`latitude` = m.`latitude` AND w.`longitude` = m.`longitude` AND w.`dt` = m.max_dt
+GROUP BY w.`latitude`, w.`longitude`, w.`dt`;
+
 -- ----------------------------
 -- Table structure for weather_forecast
 -- ----------------------------
@@ -204,6 +288,7 @@ CREATE TABLE `weather_forecast`  (
   `weather_main` varchar(50) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '天气主要状况',
   `weather_description` varchar(100) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '天气描述',
   `weather_icon` varchar(20) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '天气图标',
+  `issued_at` bigint(20) NULL DEFAULT NULL COMMENT '预报发布（拉取）时间戳，为空视为已过期',
   `created_at` datetime NOT NULL COMMENT '数据创建时间',
   PRIMARY KEY (`id`) USING BTREE,
   UNIQUE INDEX `UKcvh84x8ef0y51183g7vbtu89t`(`latitude`, `longitude`, `dt`, `forecast_type`) USING BTREE
@@ -240,4 +325,17 @@ CREATE TABLE `weather_historical`  (
   UNIQUE INDEX `UKj4isibx59gf7muryu6rp9tj3v`(`latitude`, `longitude`, `dt`) USING BTREE
 ) ENGINE = InnoDB AUTO_INCREMENT = 1 CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
 
+-- ----------------------------
+-- Table structure for weather_historical_coverage
+-- ----------------------------
+DROP TABLE IF EXISTS `weather_historical_coverage`;
+CREATE TABLE `weather_historical_coverage`  (
+  `latitude` decimal(10, 2) NOT NULL COMMENT '纬度',
+  `longitude` decimal(10, 2) NOT NULL COMMENT '经度',
+  `epoch_day` bigint(20) NOT NULL COMMENT '自纪元起的天数(UTC)',
+  `hour_mask` int(11) NOT NULL COMMENT '24位小时掩码，第n位为1表示该日第n小时已从API获取',
+  `updated_at` datetime NOT NULL COMMENT '更新时间',
+  PRIMARY KEY (`latitude`, `longitude`, `epoch_day`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci ROW_FORMAT = DYNAMIC;
+
 SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,40 @@
+package org.agro.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 首页聚合数据配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "dashboard")
+public class DashboardConfig {
+
+    private int parallelism = 8; // 聚合子查询并发线程数
+    private int queueCapacity = 200; // 子查询等待队列长度，超出时由调用线程执行
+    private long cacheTtlSeconds = 30; // 每个用户聚合结果的缓存时长（秒）
+    private int cacheMaxSize = 10000; // 聚合结果缓存最大用户数
+
+    /**
+     * 聚合子查询线程池
+     */
+    @Bean
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        int poolSize = Math.max(1, parallelism);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -4,6 +4,8 @@ import org.agro.entity.NotificationSetting;
 import org.agro.entity.User;
 import org.agro.repository.NotificationSettingRepository;
 import org.agro.repository.UserRepository;
+import org.agro.repository.WeatherCurrentLatestRepository;
+import org.agro.repository.WeatherCurrentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,12 @@ public class InitializationConfig {
     
     @Autowired
     private NotificationSettingRepository notificationSettingRepository;
+
+    @Autowired
+    private WeatherCurrentRepository weatherCurrentRepository;
+
+    @Autowired
+    private WeatherCurrentLatestRepository weatherCurrentLatestRepository;
     
     /**
      * 应用启动时初始化管理员账户
@@ -58,4 +66,19 @@ public class InitializationConfig {
             }
         };
     }
-} 
\ No newline at end of file
+
+    /**
+     * 应用启动时回填最新实时天气快照表
+     * 快照表为空而历史表已有数据时（首次升级），按坐标取时间戳最新的记录写入快照表
+     */
+    @Bean
+    public CommandLineRunner backfillWeatherCurrentLatest() {
+        return args -> {
+            if (weatherCurrentLatestRepository.count() > 0 || weatherCurrentRepository.count() == 0) {
+                return;
+            }
+            int rows = weatherCurrentLatestRepository.backfillFromHistory();
+            logger.info("已根据历史实时天气回填最新快照: {} 个坐标", rows);
+        };
+    }
+}
@@ -2,11 +2,13 @@ package org.agro.config;
 
 import lombok.Data;
 import org.agro.service.SystemConfigService;
+import org.agro.util.CoordinateGrid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
 
 @Data
 @Configuration
@@ -19,6 +21,30 @@ public class OpenWeatherMapConfig {
     private String dailyForecastUrl;
     private String climateForecastUrl;
     private String historicalWeatherUrl;
+    private int currentCacheMaxSize = 10000; // 实时天气本地缓存最大条目数
+    private int ingestBatchSize = 500; // 天气数据批量写入每批行数
+    private int connectTimeoutMillis = 3000; // 连接超时（毫秒）
+    private int readTimeoutMillis = 10000; // 请求超时（毫秒）
+    private int maxConnectionsPerHost = 16; // 每个主机的最大并发连接数，同时也是响应处理线程数
+    private int circuitFailureThreshold = 5; // 连续失败多少次后熔断
+    private long circuitOpenMillis = 30000; // 熔断持续时长（毫秒），之后进入半开状态试探
+    private double interactiveReserveRatio = 0.2; // 调用额度中为交互请求预留的比例，后台同步不可使用
+    private int syncParallelism = 8; // 定时同步并发上限
+    private int forecastSyncParallelism = 2; // 每日预报同步并发处理的网格数，与实时天气同步使用各自的线程池
+    private long syncTickMillis = 1000; // 实时天气同步检查到期网格的间隔（毫秒）
+    private BigDecimal gridResolution = new BigDecimal("0.01"); // 坐标网格分辨率（度，须为0.01的整数倍），同一网格内的地块共享天气数据
+    private long hourlyForecastMaxAgeMinutes = 180; // 小时级预报发布后的有效时长（分钟），超过后在后台刷新
+    private long dailyForecastMaxAgeMinutes = 720; // 16天预报发布后的有效时长（分钟）
+    private long climateForecastMaxAgeMinutes = 1440; // 30天气候预报发布后的有效时长（分钟）
+    private int forecastParallelism = 6; // 预报分段并行查询线程数
+    private long forecastCacheSeconds = 300; // 拼接后预报结果的本地缓存时长（秒）
+    private int forecastCacheMaxSize = 2000; // 拼接后预报结果的本地缓存最大条目数
+    private int historicalChunkHours = 168; // 历史天气单次请求的最大小时数（API单次最多一周）
+    private int historicalSettleHours = 24; // 超过该小时数的历史时段即使API没有返回数据也视为已获取，不再重复请求
+    private int backfillParallelism = 2; // 历史数据回填并发处理的坐标数
+    private int backfillWindowDays = 28; // 历史数据回填每次处理的天数
+    private long backfillRetryDelaySeconds = 60; // 回填窗口获取失败（额度不足、熔断等）后的首次重试间隔（秒），之后逐次加倍
+    private long backfillMaxRetryDelaySeconds = 1800; // 回填重试间隔上限（秒）
     
     @Autowired
     public OpenWeatherMapConfig(SystemConfigService systemConfigService) {
@@ -31,7 +57,7 @@ public class OpenWeatherMapConfig {
     }
     
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public CoordinateGrid coordinateGrid() {
+        return new CoordinateGrid(gridResolution);
     }
 } 
\ No newline at end of file
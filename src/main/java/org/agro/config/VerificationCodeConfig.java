@@ -0,0 +1,29 @@
+package org.agro.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 验证码配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "verification.code")
+public class VerificationCodeConfig {
+
+    private String store = "memory"; // 存储方式：memory（单节点内存）或database（多节点共享）
+    private long ttlSeconds = 600; // 验证码有效期（秒）
+    private long sendIntervalSeconds = 60; // 同一邮箱两次发送的最小间隔（秒）
+    private int maxAttempts = 5; // 同一验证码允许的错误次数，达到后验证码作废
+
+    public Duration getTtl() {
+        return Duration.ofSeconds(ttlSeconds);
+    }
+
+    public Duration getSendInterval() {
+        return Duration.ofSeconds(sendIntervalSeconds);
+    }
+}
@@ -0,0 +1,104 @@
+package org.agro.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 天气数据相关线程池配置
+ */
+@Configuration
+public class WeatherExecutorConfig {
+
+    private final OpenWeatherMapConfig weatherConfig;
+
+    @Autowired
+    public WeatherExecutorConfig(OpenWeatherMapConfig weatherConfig) {
+        this.weatherConfig = weatherConfig;
+    }
+
+    /**
+     * 定时同步使用的线程池，线程数即同步并发上限
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherSyncExecutor() {
+        int parallelism = Math.max(1, weatherConfig.getSyncParallelism());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("weather-sync-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 每日预报同步线程池，与实时天气同步分开，避免大量预报任务阻塞实时天气刷新；
+     * 队列满时由同步任务线程执行，提交速度随处理速度放缓
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherForecastSyncExecutor() {
+        int parallelism = Math.max(1, weatherConfig.getForecastSyncParallelism());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 16);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("weather-forecast-sync-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 后台刷新线程池，用于熔断恢复后重新获取过期数据；
+     * 队列满时跳过的网格仍留在待刷新列表中，之后再次刷新
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherRefreshExecutor() {
+        int poolSize = 2;
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 16);
+        executor.setThreadNamePrefix("weather-refresh-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 预报分段查询线程池，多个预报类型的分段并行查询，队列满时由调用线程执行
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherForecastExecutor() {
+        int poolSize = Math.max(1, weatherConfig.getForecastParallelism());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 16);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("weather-forecast-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 历史数据回填线程池，每个线程依次处理一个坐标，线程数即回填并发上限
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherBackfillExecutor() {
+        int parallelism = Math.max(1, weatherConfig.getBackfillParallelism());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("weather-backfill-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,63 @@
+package org.agro.controller;
+
+import org.agro.dto.ApiResponse;
+import org.agro.entity.HistoricalBackfillJob;
+import org.agro.service.HistoricalBackfillService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 管理员历史天气回填控制器
+ */
+@RestController
+@RequestMapping("/admin/backfill")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminBackfillController {
+
+    @Autowired
+    private HistoricalBackfillService historicalBackfillService;
+
+    /**
+     * 发起历史天气回填任务
+     */
+    @PostMapping
+    public ResponseEntity<?> startBackfill(Authentication authentication, @RequestBody Map<String, Integer> data) {
+        Integer years = data.get("years");
+        if (years == null) {
+            throw new IllegalArgumentException("请指定回填年数");
+        }
+        HistoricalBackfillJob job = historicalBackfillService.startJob(years, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success("回填任务已开始",
+                historicalBackfillService.getProgress(job.getId())));
+    }
+
+    /**
+     * 获取最近的回填任务及进度
+     */
+    @GetMapping
+    public ResponseEntity<?> getBackfillJobs() {
+        return ResponseEntity.ok(ApiResponse.success(historicalBackfillService.getRecentJobs()));
+    }
+
+    /**
+     * 获取回填任务进度及预计剩余时间
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getBackfillProgress(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(historicalBackfillService.getProgress(id)));
+    }
+
+    /**
+     * 取消回填任务
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelBackfill(@PathVariable Long id) {
+        historicalBackfillService.cancelJob(id);
+        return ResponseEntity.ok(ApiResponse.success("回填任务已取消", historicalBackfillService.getProgress(id)));
+    }
+}
@@ -5,9 +5,16 @@ import org.agro.dto.NotificationDTO;
 import org.agro.entity.Notification;
 import org.agro.entity.SystemConfig;
 import org.agro.entity.User;
+import org.agro.repository.WeatherUpsertRepository;
+import org.agro.security.TokenRevocationService;
 import org.agro.service.NotificationService;
+import org.agro.service.OpenWeatherMapClient;
+import org.agro.service.OpenWeatherMapRateLimiter;
 import org.agro.service.SystemConfigService;
 import org.agro.service.UserService;
+import org.agro.service.WeatherCurrentCache;
+import org.agro.service.WeatherDataSyncService;
+import org.agro.service.WeatherFetchMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +27,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -43,6 +51,27 @@ public class AdminController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private WeatherCurrentCache weatherCurrentCache;
+
+    @Autowired
+    private WeatherFetchMetrics weatherFetchMetrics;
+
+    @Autowired
+    private WeatherDataSyncService weatherDataSyncService;
+
+    @Autowired
+    private OpenWeatherMapClient openWeatherMapClient;
+
+    @Autowired
+    private OpenWeatherMapRateLimiter openWeatherMapRateLimiter;
+
+    @Autowired
+    private WeatherUpsertRepository weatherUpsertRepository;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     /**
      * 获取所有用户（分页）
      */
@@ -193,4 +222,39 @@ public class AdminController {
         
         return ResponseEntity.ok(ApiResponse.success(dtoPage));
     }
+
+    /**
+     * 按令牌ID（jti）吊销令牌
+     */
+    @PostMapping("/tokens/revoke")
+    public ResponseEntity<?> revokeToken(@RequestBody Map<String, String> data) {
+        tokenRevocationService.revokeToken(data.get("tokenId"), null, null);
+        return ResponseEntity.ok(ApiResponse.success("令牌已吊销", null));
+    }
+
+    /**
+     * 吊销用户当前已签发的全部令牌
+     */
+    @PostMapping("/users/{id}/revoke-tokens")
+    public ResponseEntity<?> revokeUserTokens(@PathVariable Long id) {
+        User user = userService.findById(id);
+        tokenRevocationService.revokeAllForUser(user.getId(), user.getUsername());
+        return ResponseEntity.ok(ApiResponse.success("用户令牌已全部吊销", null));
+    }
+
+    /**
+     * 获取天气数据服务运行统计
+     */
+    @GetMapping("/weather/stats")
+    public ResponseEntity<?> getWeatherStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("currentCache", weatherCurrentCache.stats());
+        stats.put("fetch", weatherFetchMetrics.stats());
+        stats.put("sync", weatherDataSyncService.stats());
+        stats.put("http", openWeatherMapClient.stats());
+        stats.put("circuit", openWeatherMapClient.circuitStats());
+        stats.put("rateLimit", openWeatherMapRateLimiter.stats());
+        stats.put("ingest", weatherUpsertRepository.stats());
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package org.agro.controller;
 
+import io.jsonwebtoken.Claims;
 import org.agro.dto.*;
 import org.agro.entity.User;
+import org.agro.security.JwtUtils;
+import org.agro.security.TokenRevocationService;
+import org.agro.security.UserDetailsImpl;
 import org.agro.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -19,6 +24,12 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     /**
      * 用户注册
      */
@@ -46,6 +57,23 @@ public class AuthController {
         return ResponseEntity.ok(ApiResponse.success("登录成功", authResponse));
     }
 
+    /**
+     * 退出登录，吊销当前令牌
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                    Authentication authentication) {
+        String token = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        Claims claims = token != null ? jwtUtils.validateAndGetClaims(token) : null;
+        if (claims == null) {
+            return ResponseEntity.badRequest().body(ApiResponse.fail("令牌无效或已过期"));
+        }
+        Long userId = authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl
+                ? ((UserDetailsImpl) authentication.getPrincipal()).getId() : null;
+        tokenRevocationService.revokeToken(claims, userId);
+        return ResponseEntity.ok(ApiResponse.success("已退出登录", null));
+    }
+
     /**
      * 发送密码重置验证码
      */
@@ -0,0 +1,35 @@
+package org.agro.controller;
+
+import org.agro.dto.DashboardDTO;
+import org.agro.dto.ResponseResult;
+import org.agro.security.UserDetailsImpl;
+import org.agro.service.DashboardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 首页控制器
+ */
+@RestController
+@RequestMapping("/dashboard")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    @Autowired
+    public DashboardController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * 获取首页聚合数据
+     */
+    @GetMapping
+    public ResponseResult<DashboardDTO> getDashboard(Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        return ResponseResult.success(dashboardService.getDashboard(userDetails.getId()));
+    }
+}
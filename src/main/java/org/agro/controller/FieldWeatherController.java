@@ -0,0 +1,112 @@
+package org.agro.controller;
+
+import org.agro.dto.ResponseResult;
+import org.agro.dto.WeatherCurrentDTO;
+import org.agro.dto.WeatherForecastDTO;
+import org.agro.dto.WeatherHistoricalDTO;
+import org.agro.dto.WeatherRequestDTO;
+import org.agro.entity.Field;
+import org.agro.security.UserDetailsImpl;
+import org.agro.service.FieldService;
+import org.agro.service.WeatherService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 地块天气控制器
+ * 按地块ID查询天气，坐标由服务端根据地块解析，客户端无需先查询地块
+ */
+@RestController
+@RequestMapping("/fields/{id}/weather")
+public class FieldWeatherController {
+
+    @Autowired
+    private FieldService fieldService;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    /**
+     * 获取地块实时天气
+     * @param authentication 当前登录用户
+     * @param id 地块ID
+     * @return 实时天气数据
+     */
+    @GetMapping("/current")
+    public ResponseResult<WeatherCurrentDTO> getCurrentWeather(
+            Authentication authentication,
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "metric") String units,
+            @RequestParam(defaultValue = "zh_cn") String lang,
+            @RequestParam(required = false) Boolean forceRefresh) {
+        WeatherRequestDTO request = buildRequest(authentication, id, units, lang, forceRefresh);
+        return ResponseResult.success(weatherService.getCurrentWeather(request));
+    }
+
+    /**
+     * 获取地块天气预报
+     * @param authentication 当前登录用户
+     * @param id 地块ID
+     * @return 天气预报数据
+     */
+    @GetMapping("/forecast")
+    public ResponseResult<List<WeatherForecastDTO>> getWeatherForecast(
+            Authentication authentication,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long startTime,
+            @RequestParam(required = false) Long endTime,
+            @RequestParam(defaultValue = "metric") String units,
+            @RequestParam(defaultValue = "zh_cn") String lang,
+            @RequestParam(required = false) Boolean forceRefresh) {
+        WeatherRequestDTO request = buildRequest(authentication, id, units, lang, forceRefresh);
+        request.setStartTime(startTime);
+        request.setEndTime(endTime);
+        return ResponseResult.success(weatherService.getWeatherForecast(request));
+    }
+
+    /**
+     * 获取地块历史天气
+     * @param authentication 当前登录用户
+     * @param id 地块ID
+     * @return 历史天气数据
+     */
+    @GetMapping("/historical")
+    public ResponseResult<List<WeatherHistoricalDTO>> getHistoricalWeather(
+            Authentication authentication,
+            @PathVariable Long id,
+            @RequestParam Long startTime,
+            @RequestParam Long endTime,
+            @RequestParam(defaultValue = "metric") String units,
+            @RequestParam(defaultValue = "zh_cn") String lang,
+            @RequestParam(required = false) Boolean forceRefresh) {
+        WeatherRequestDTO request = buildRequest(authentication, id, units, lang, forceRefresh);
+        request.setStartTime(startTime);
+        request.setEndTime(endTime);
+        return ResponseResult.success(weatherService.getHistoricalWeather(request));
+    }
+
+    /**
+     * 校验地块所有权并根据地块坐标构建天气请求
+     */
+    private WeatherRequestDTO buildRequest(Authentication authentication, Long id, String units,
+                                           String lang, Boolean forceRefresh) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        Field field = fieldService.getField(userDetails.getId(), id);
+
+        WeatherRequestDTO request = new WeatherRequestDTO();
+        request.setFieldId(field.getId());
+        request.setLatitude(field.getLatitude());
+        request.setLongitude(field.getLongitude());
+        request.setUnits(units);
+        request.setLang(lang);
+        request.setForceRefresh(forceRefresh);
+        return request;
+    }
+}
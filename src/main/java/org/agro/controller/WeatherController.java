@@ -1,13 +1,20 @@
 package org.agro.controller;
 
 import org.agro.dto.*;
+import org.agro.entity.Field;
+import org.agro.security.UserDetailsImpl;
+import org.agro.service.FieldService;
 import org.agro.service.WeatherService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.validation.Valid;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -15,10 +22,12 @@ import java.util.List;
 public class WeatherController {
 
     private final WeatherService weatherService;
+    private final FieldService fieldService;
 
     @Autowired
-    public WeatherController(WeatherService weatherService) {
+    public WeatherController(WeatherService weatherService, FieldService fieldService) {
         this.weatherService = weatherService;
+        this.fieldService = fieldService;
     }
 
     /**
@@ -29,6 +38,29 @@ public class WeatherController {
         return ResponseResult.success(weatherService.getCurrentWeather(request));
     }
 
+    /**
+     * 批量获取多个地块或坐标的实时天气数据
+     */
+    @PostMapping("/current/batch")
+    public ResponseResult<List<WeatherCurrentDTO>> getCurrentWeatherBatch(Authentication authentication,
+                                                                          @Valid @RequestBody WeatherBatchRequestDTO request) {
+        List<WeatherRequestDTO> requests = new ArrayList<>();
+        if (request.getFieldIds() != null && !request.getFieldIds().isEmpty()) {
+            Long userId = ((UserDetailsImpl) authentication.getPrincipal()).getId();
+            for (Field field : fieldService.getFieldsByIds(userId, request.getFieldIds())) {
+                WeatherRequestDTO item = toWeatherRequest(request, field.getLatitude(), field.getLongitude());
+                item.setFieldId(field.getId());
+                requests.add(item);
+            }
+        }
+        if (request.getCoordinates() != null) {
+            for (WeatherBatchRequestDTO.Coordinate coordinate : request.getCoordinates()) {
+                requests.add(toWeatherRequest(request, coordinate.getLatitude(), coordinate.getLongitude()));
+            }
+        }
+        return ResponseResult.success(weatherService.getCurrentWeatherBatch(requests));
+    }
+
     /**
      * 获取特定地点的天气预报
      */
@@ -44,4 +76,15 @@ public class WeatherController {
     public ResponseResult<List<WeatherHistoricalDTO>> getHistoricalWeather(@RequestBody WeatherRequestDTO request) {
         return ResponseResult.success(weatherService.getHistoricalWeather(request));
     }
+
+    private WeatherRequestDTO toWeatherRequest(WeatherBatchRequestDTO batch, BigDecimal latitude,
+                                               BigDecimal longitude) {
+        WeatherRequestDTO item = new WeatherRequestDTO();
+        item.setLatitude(latitude);
+        item.setLongitude(longitude);
+        item.setUnits(batch.getUnits());
+        item.setLang(batch.getLang());
+        item.setForceRefresh(batch.getForceRefresh());
+        return item;
+    }
 }
@@ -0,0 +1,22 @@
+package org.agro.dto;
+
+import lombok.Data;
+import org.agro.entity.Announcement;
+import org.agro.entity.Field;
+import org.agro.entity.FieldGroup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 首页聚合数据DTO
+ */
+@Data
+public class DashboardDTO {
+    private List<Field> fields; // 用户的地块列表
+    private List<FieldGroup> fieldGroups; // 用户的地块组列表
+    private List<WeatherCurrentDTO> fieldWeather; // 各地块的实时天气，获取失败的地块不包含在内
+    private Long unreadNotificationCount; // 未读通知数量
+    private List<Announcement> announcements; // 当前有效的公告
+    private LocalDateTime generatedAt; // 聚合数据生成时间
+}
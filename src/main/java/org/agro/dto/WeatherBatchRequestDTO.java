@@ -0,0 +1,39 @@
+package org.agro.dto;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class WeatherBatchRequestDTO {
+    @Size(max = 200, message = "地块ID数量不能超过200个")
+    private List<Long> fieldIds = new ArrayList<>(); // 地块ID列表，按地块坐标查询
+
+    @Valid
+    @Size(max = 200, message = "坐标数量不能超过200个")
+    private List<Coordinate> coordinates = new ArrayList<>(); // 坐标列表
+
+    private String units = "metric"; // 默认使用公制单位(摄氏度)
+    private String lang = "zh_cn"; // 默认使用中文
+    private Boolean forceRefresh; // 是否强制刷新数据，绕过缓存
+
+    @Data
+    public static class Coordinate {
+        @NotNull(message = "纬度不能为空")
+        @DecimalMin(value = "-90", message = "纬度超出范围")
+        @DecimalMax(value = "90", message = "纬度超出范围")
+        private BigDecimal latitude;
+
+        @NotNull(message = "经度不能为空")
+        @DecimalMin(value = "-180", message = "经度超出范围")
+        @DecimalMax(value = "180", message = "经度超出范围")
+        private BigDecimal longitude;
+    }
+}
@@ -34,4 +34,6 @@ public class WeatherCurrentDTO {
     private String locationName;
     private BigDecimal latitude;
     private BigDecimal longitude;
+    private Long fieldId; // 关联的地块ID（按地块查询时返回）
+    private Boolean stale; // 数据是否已超过拉取频率（上游不可用时返回的已存储数据）
 }
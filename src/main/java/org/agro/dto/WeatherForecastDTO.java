@@ -6,6 +6,8 @@ import java.math.BigDecimal;
 
 @Data
 public class WeatherForecastDTO {
+    private BigDecimal latitude; // 请求方（地块）的纬度
+    private BigDecimal longitude; // 请求方（地块）的经度
     private Long dt;
     private Long sunrise;
     private Long sunset;
@@ -29,4 +31,7 @@ public class WeatherForecastDTO {
     private String weatherDescription;
     private String weatherIcon;
     private String dtTxt; // 可读的日期时间文本
+    private Long issuedAt; // 预报发布（拉取）时间戳
+    private String resolution; // 数据粒度：hour（小时级预报）、day（16天/30天预报）
+    private Boolean stale; // 是否为刷新失败或发布时间已超过新鲜度要求时返回的已存储数据
 }
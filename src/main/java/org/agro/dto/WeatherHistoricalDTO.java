@@ -6,6 +6,8 @@ import java.math.BigDecimal;
 
 @Data
 public class WeatherHistoricalDTO {
+    private BigDecimal latitude; // 请求方（地块）的纬度
+    private BigDecimal longitude; // 请求方（地块）的经度
     private Long dt;
     private BigDecimal temp;
     private BigDecimal feelsLike;
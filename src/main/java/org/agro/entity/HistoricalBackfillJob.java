@@ -0,0 +1,50 @@
+package org.agro.entity;
+
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 历史天气回填任务
+ * 一次回填覆盖所有地块坐标在[startTime, endTime)内的逐小时历史数据，按坐标拆分为 {@link HistoricalBackfillTask}
+ */
+@Entity
+@Table(name = "historical_backfill_job")
+@Data
+public class HistoricalBackfillJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer years; // 回填年数
+
+    @Column(nullable = false)
+    private Long startTime; // 回填范围开始时间戳（含）
+
+    @Column(nullable = false)
+    private Long endTime; // 回填范围结束时间戳（不含）
+
+    @Column(nullable = false)
+    private Integer cellCount; // 坐标网格数
+
+    @Column(nullable = false)
+    private Integer status; // 0:运行中 1:已完成 2:已取消
+
+    @Column(length = 50)
+    private String createdBy;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column
+    private LocalDateTime finishedAt;
+}
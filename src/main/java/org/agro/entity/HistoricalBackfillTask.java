@@ -0,0 +1,47 @@
+package org.agro.entity;
+
+import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 历史天气回填任务中单个坐标的进度
+ * 从回填范围的结束时间向前逐个窗口回填，cursorTime之后的数据已全部获取，重启后从cursorTime继续
+ */
+@Entity
+@Table(name = "historical_backfill_task",
+       indexes = @Index(name = "idx_backfill_task_job", columnList = "job_id"))
+@Data
+public class HistoricalBackfillTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(nullable = false, precision = 10)
+    private BigDecimal latitude;
+
+    @Column(nullable = false, precision = 10)
+    private BigDecimal longitude;
+
+    @Column(nullable = false)
+    private Long cursorTime; // 已回填到的时间戳，[cursorTime, 任务结束时间)已完成
+
+    @Column(nullable = false)
+    private Boolean completed = false;
+
+    @Column(nullable = false)
+    private Integer failedAttempts = 0; // 当前窗口连续失败次数
+
+    @Column(length = 255)
+    private String lastError;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,30 @@
+package org.agro.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 已吊销的令牌
+ * tokenId为令牌ID（jti）；吊销用户全部令牌时为"user:用户名"，此时签发时间早于revokedAt的令牌均无效。
+ * 过期后的记录由后台定时清理
+ */
+@Entity
+@Table(name = "revoked_token",
+       indexes = @Index(name = "idx_revoked_token_revoked_at", columnList = "revoked_at"))
+@Data
+public class RevokedToken {
+    @Id
+    @Column(length = 128)
+    private String tokenId;
+
+    @Column
+    private Long userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt; // 令牌过期时间，之后记录不再需要
+}
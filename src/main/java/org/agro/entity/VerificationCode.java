@@ -0,0 +1,32 @@
+package org.agro.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 邮箱验证码
+ * 每个邮箱一条记录，同时保存当前验证码和下次允许发送的时间，供多个节点共享。
+ * 验证码和发送限制都过期后的记录由后台定时清理
+ */
+@Entity
+@Table(name = "verification_code")
+@Data
+public class VerificationCode {
+    @Id
+    @Column(length = 100)
+    private String email;
+
+    @Column(length = 16)
+    private String code; // 已使用或未发送时为空
+
+    @Column
+    private LocalDateTime expiresAt; // 验证码过期时间
+
+    @Column
+    private LocalDateTime nextSendAt; // 下次允许发送的时间
+
+    @Column(nullable = false)
+    private Integer failedAttempts = 0; // 当前验证码的错误次数
+}
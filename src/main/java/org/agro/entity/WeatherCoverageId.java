@@ -0,0 +1,24 @@
+package org.agro.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * 坐标+自然日复合主键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeatherCoverageId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private BigDecimal latitude;
+
+    private BigDecimal longitude;
+
+    private Long epochDay;
+}
@@ -0,0 +1,36 @@
+package org.agro.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 各坐标最新实时天气快照
+ * 每个坐标只保留一行，指向weather_current中时间戳最新的记录，新鲜度判断只需一次主键查询
+ */
+@Data
+@Entity
+@Table(name = "weather_current_latest")
+@IdClass(WeatherCoordinateId.class)
+public class WeatherCurrentLatest {
+
+    @Id
+    @Column(nullable = false, precision = 10)
+    private BigDecimal latitude;
+
+    @Id
+    @Column(nullable = false, precision = 10)
+    private BigDecimal longitude;
+
+    @Column(nullable = false)
+    private Long dt; // 最新数据时间戳
+
+    @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    @JoinColumn(name = "current_id", nullable = false)
+    private WeatherCurrent current;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
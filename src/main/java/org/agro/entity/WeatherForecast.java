@@ -83,6 +83,9 @@ public class WeatherForecast {
     @Column(length = 30)
     private String dtTxt; // 可读的日期时间文本
 
+    @Column(name = "issued_at")
+    private Long issuedAt; // 预报发布（拉取）时间戳，同一坐标同一类型以最新一次发布为准
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,37 @@
+package org.agro.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 历史天气按小时的覆盖情况
+ * 每个坐标每个自然日（UTC）一行，hourMask的第n位为1表示该日第n小时已从API获取过（包括API没有返回数据的小时），
+ * 再次查询时只需请求缺失的小时
+ */
+@Data
+@Entity
+@Table(name = "weather_historical_coverage")
+@IdClass(WeatherCoverageId.class)
+public class WeatherHistoricalCoverage {
+
+    @Id
+    @Column(nullable = false, precision = 10)
+    private BigDecimal latitude;
+
+    @Id
+    @Column(nullable = false, precision = 10)
+    private BigDecimal longitude;
+
+    @Id
+    @Column(name = "epoch_day", nullable = false)
+    private Long epochDay; // 自纪元起的天数（UTC）
+
+    @Column(name = "hour_mask", nullable = false)
+    private Integer hourMask; // 24位小时掩码
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,24 @@
+package org.agro.event;
+
+/**
+ * 系统配置变更事件
+ * 配置保存或删除后发布，value为null表示配置已删除
+ */
+public class SystemConfigChangedEvent {
+
+    private final String key;
+    private final String value;
+
+    public SystemConfigChangedEvent(String key, String value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
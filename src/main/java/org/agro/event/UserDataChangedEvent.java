@@ -0,0 +1,18 @@
+package org.agro.event;
+
+/**
+ * 用户数据变更事件
+ * 地块、地块组、通知或公告变更后发布，用于失效按用户缓存的聚合数据，userId为null表示影响所有用户
+ */
+public class UserDataChangedEvent {
+
+    private final Long userId;
+
+    public UserDataChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,25 @@
+package org.agro.event;
+
+import org.agro.util.CircuitBreaker;
+
+/**
+ * 天气API熔断器状态变化事件
+ */
+public class WeatherCircuitStateChangedEvent {
+
+    private final CircuitBreaker.State from;
+    private final CircuitBreaker.State to;
+
+    public WeatherCircuitStateChangedEvent(CircuitBreaker.State from, CircuitBreaker.State to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public CircuitBreaker.State getFrom() {
+        return from;
+    }
+
+    public CircuitBreaker.State getTo() {
+        return to;
+    }
+}
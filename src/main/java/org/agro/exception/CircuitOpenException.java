@@ -0,0 +1,12 @@
+package org.agro.exception;
+
+/**
+ * 天气数据API熔断异常
+ * 上游连续失败后熔断器打开期间抛出，调用方应回退使用已存储的数据
+ */
+public class CircuitOpenException extends WeatherApiException {
+
+    public CircuitOpenException(String message) {
+        super(503, message);
+    }
+}
@@ -0,0 +1,12 @@
+package org.agro.exception;
+
+/**
+ * 天气数据API调用额度不足异常
+ * 本地限流器拒绝调用时抛出，调用方应回退使用已存储的数据
+ */
+public class RateLimitExceededException extends WeatherApiException {
+
+    public RateLimitExceededException(String message) {
+        super(429, message);
+    }
+}
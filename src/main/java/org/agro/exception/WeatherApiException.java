@@ -0,0 +1,24 @@
+package org.agro.exception;
+
+/**
+ * 天气数据API调用异常
+ * 上游返回非2xx状态码、超时或网络错误时抛出，statusCode为0表示未收到响应
+ */
+public class WeatherApiException extends RuntimeException {
+
+    private final int statusCode;
+
+    public WeatherApiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public WeatherApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,33 @@
+package org.agro.repository;
+
+import org.agro.entity.HistoricalBackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 历史天气回填任务存储库接口
+ */
+@Repository
+public interface HistoricalBackfillJobRepository extends JpaRepository<HistoricalBackfillJob, Long> {
+    /**
+     * 按状态查找回填任务
+     */
+    List<HistoricalBackfillJob> findByStatus(Integer status);
+
+    /**
+     * 是否存在指定状态的回填任务
+     */
+    boolean existsByStatus(Integer status);
+
+    /**
+     * 回填任务是否处于指定状态
+     */
+    boolean existsByIdAndStatus(Long id, Integer status);
+
+    /**
+     * 最近创建的回填任务
+     */
+    List<HistoricalBackfillJob> findTop20ByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,28 @@
+package org.agro.repository;
+
+import org.agro.entity.HistoricalBackfillTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 历史天气回填坐标进度存储库接口
+ */
+@Repository
+public interface HistoricalBackfillTaskRepository extends JpaRepository<HistoricalBackfillTask, Long> {
+    /**
+     * 查找回填任务的全部坐标进度
+     */
+    List<HistoricalBackfillTask> findByJobId(Long jobId);
+
+    /**
+     * 查找回填任务中尚未完成的坐标
+     */
+    List<HistoricalBackfillTask> findByJobIdAndCompletedFalse(Long jobId);
+
+    /**
+     * 回填任务中尚未完成的坐标数
+     */
+    long countByJobIdAndCompletedFalse(Long jobId);
+}
@@ -0,0 +1,37 @@
+package org.agro.repository;
+
+import org.agro.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 已吊销令牌存储库接口
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    /**
+     * 查找全部未过期的吊销记录ID
+     */
+    @Query("SELECT r.tokenId FROM RevokedToken r WHERE r.expiresAt > ?1")
+    List<String> findActiveTokenIds(LocalDateTime now);
+
+    /**
+     * 查找指定时间之后吊销且未过期的记录ID
+     */
+    @Query("SELECT r.tokenId FROM RevokedToken r WHERE r.revokedAt >= ?1 AND r.expiresAt > ?2")
+    List<String> findActiveTokenIdsRevokedSince(LocalDateTime since, LocalDateTime now);
+
+    /**
+     * 删除已过期的吊销记录
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= ?1")
+    int deleteExpired(LocalDateTime now);
+}
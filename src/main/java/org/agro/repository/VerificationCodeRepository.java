@@ -0,0 +1,82 @@
+package org.agro.repository;
+
+import org.agro.entity.VerificationCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * 邮箱验证码存储库接口
+ */
+@Repository
+public interface VerificationCodeRepository extends JpaRepository<VerificationCode, String> {
+    /**
+     * 发送间隔已过时更新下次允许发送的时间，返回更新行数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE VerificationCode v SET v.nextSendAt = ?2 WHERE v.email = ?1 AND (v.nextSendAt IS NULL OR v.nextSendAt <= ?3)")
+    int claimSend(String email, LocalDateTime nextSendAt, LocalDateTime now);
+
+    /**
+     * 插入只有发送限制的记录，记录已存在时抛出主键冲突
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO verification_code (email, next_send_at, failed_attempts) VALUES (?1, ?2, 0)", nativeQuery = true)
+    int insertSend(String email, LocalDateTime nextSendAt);
+
+    /**
+     * 插入验证码记录，记录已存在时抛出主键冲突
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO verification_code (email, code, expires_at, failed_attempts) VALUES (?1, ?2, ?3, 0)", nativeQuery = true)
+    int insertCode(String email, String code, LocalDateTime expiresAt);
+
+    /**
+     * 更新邮箱的验证码并清零错误次数，返回更新行数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE VerificationCode v SET v.code = ?2, v.expiresAt = ?3, v.failedAttempts = 0 WHERE v.email = ?1")
+    int updateCode(String email, String code, LocalDateTime expiresAt);
+
+    /**
+     * 验证码一致且未过期时清除验证码，保留发送限制，返回更新行数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE VerificationCode v SET v.code = NULL, v.expiresAt = NULL, v.failedAttempts = 0 "
+            + "WHERE v.email = ?1 AND v.code = ?2 AND v.expiresAt > ?3")
+    int consumeCode(String email, String code, LocalDateTime now);
+
+    /**
+     * 未过期的验证码错误次数加一，返回更新行数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE VerificationCode v SET v.failedAttempts = v.failedAttempts + 1 "
+            + "WHERE v.email = ?1 AND v.code IS NOT NULL AND v.expiresAt > ?2")
+    int recordFailedAttempt(String email, LocalDateTime now);
+
+    /**
+     * 错误次数达到上限时作废验证码，保留发送限制
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE VerificationCode v SET v.code = NULL, v.expiresAt = NULL WHERE v.email = ?1 AND v.failedAttempts >= ?2")
+    int clearCodeAfterFailures(String email, int maxAttempts);
+
+    /**
+     * 删除验证码和发送限制都已过期的记录
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM VerificationCode v WHERE (v.expiresAt IS NULL OR v.expiresAt <= ?1) AND (v.nextSendAt IS NULL OR v.nextSendAt <= ?1)")
+    int deleteExpired(LocalDateTime now);
+}
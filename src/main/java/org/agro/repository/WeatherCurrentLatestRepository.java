@@ -0,0 +1,74 @@
+package org.agro.repository;
+
+import org.agro.entity.WeatherCoordinateId;
+import org.agro.entity.WeatherCurrentLatest;
+import org.agro.util.CoordinateKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 最新实时天气快照存储库接口
+ */
+@Repository
+public interface WeatherCurrentLatestRepository extends JpaRepository<WeatherCurrentLatest, WeatherCoordinateId> {
+
+    /**
+     * 写入坐标的最新实时天气，仅当时间戳不早于已有快照时覆盖
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO weather_current_latest (latitude, longitude, dt, current_id, updated_at) " +
+            "VALUES (:latitude, :longitude, :dt, :currentId, NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "current_id = IF(VALUES(dt) >= dt, VALUES(current_id), current_id), " +
+            "updated_at = IF(VALUES(dt) >= dt, VALUES(updated_at), updated_at), " +
+            "dt = GREATEST(dt, VALUES(dt))", nativeQuery = true)
+    int upsertLatest(@Param("latitude") BigDecimal latitude,
+                     @Param("longitude") BigDecimal longitude,
+                     @Param("dt") Long dt,
+                     @Param("currentId") Long currentId);
+
+    /**
+     * 根据weather_current历史数据回填各坐标的最新快照，已存在的快照保持不变
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO weather_current_latest (latitude, longitude, dt, current_id, updated_at) " +
+            "SELECT w.latitude, w.longitude, w.dt, MAX(w.id), NOW() FROM weather_current w " +
+            "JOIN (SELECT latitude, longitude, MAX(dt) AS max_dt FROM weather_current GROUP BY latitude, longitude) m " +
+            "ON w.latitude = m.latitude AND w.longitude = m.longitude AND w.dt = m.max_dt " +
+            "GROUP BY w.latitude, w.longitude, w.dt", nativeQuery = true)
+    int backfillFromHistory();
+
+    /**
+     * 按纬度集合和经度集合一次查询最新快照（同时加载对应的实时天气），
+     * 结果可能包含纬度、经度交叉组合出的多余坐标，由调用方按坐标过滤
+     */
+    @Query("SELECT l FROM WeatherCurrentLatest l JOIN FETCH l.current " +
+            "WHERE l.latitude IN :latitudes AND l.longitude IN :longitudes")
+    List<WeatherCurrentLatest> findAllByCoordinates(@Param("latitudes") Collection<BigDecimal> latitudes,
+                                                    @Param("longitudes") Collection<BigDecimal> longitudes);
+
+    /**
+     * 根据网格坐标键查询最新快照
+     */
+    default Optional<WeatherCurrentLatest> findByKey(CoordinateKey key) {
+        return findById(new WeatherCoordinateId(key.getLatitude(), key.getLongitude()));
+    }
+
+    /**
+     * 写入网格坐标键的最新实时天气
+     */
+    default int upsertLatest(CoordinateKey key, Long dt, Long currentId) {
+        return upsertLatest(key.getLatitude(), key.getLongitude(), dt, currentId);
+    }
+}
@@ -1,10 +1,13 @@
 package org.agro.repository;
 
 import org.agro.entity.WeatherForecast;
+import org.agro.util.CoordinateKey;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -53,4 +56,36 @@ public interface WeatherForecastRepository extends JpaRepository<WeatherForecast
             @Param("longitude") BigDecimal longitude,
             @Param("forecastType") byte forecastType,
             @Param("dt") Long dt);
-} 
\ No newline at end of file
+
+    /**
+     * 删除时间范围内早于指定发布时间（或没有发布时间）的预报，即已被新一次发布取代的记录
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WeatherForecast f WHERE " +
+            "f.latitude = :latitude AND f.longitude = :longitude AND " +
+            "f.forecastType = :forecastType AND " +
+            "f.dt >= :startTime AND f.dt <= :endTime AND " +
+            "(f.issuedAt IS NULL OR f.issuedAt < :issuedAt)")
+    int deleteSupersededInTimeRange(
+            @Param("latitude") BigDecimal latitude,
+            @Param("longitude") BigDecimal longitude,
+            @Param("forecastType") byte forecastType,
+            @Param("startTime") Long startTime,
+            @Param("endTime") Long endTime,
+            @Param("issuedAt") Long issuedAt);
+
+    /**
+     * 根据网格坐标键、预报类型及时间范围查询天气预报数据
+     */
+    default List<WeatherForecast> findByKeyAndTypeInTimeRange(CoordinateKey key, byte forecastType, Long startTime, Long endTime) {
+        return findByCoordinatesAndTypeInTimeRange(key.getLatitude(), key.getLongitude(), forecastType, startTime, endTime);
+    }
+
+    /**
+     * 根据网格坐标键删除时间范围内已被新一次发布取代的预报
+     */
+    default int deleteSupersededByKey(CoordinateKey key, byte forecastType, Long startTime, Long endTime, Long issuedAt) {
+        return deleteSupersededInTimeRange(key.getLatitude(), key.getLongitude(), forecastType, startTime, endTime, issuedAt);
+    }
+}
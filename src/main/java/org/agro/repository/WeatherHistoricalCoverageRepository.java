@@ -0,0 +1,38 @@
+package org.agro.repository;
+
+import org.agro.entity.WeatherCoverageId;
+import org.agro.entity.WeatherHistoricalCoverage;
+import org.agro.util.CoordinateKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 历史天气覆盖情况存储库接口
+ */
+@Repository
+public interface WeatherHistoricalCoverageRepository extends JpaRepository<WeatherHistoricalCoverage, WeatherCoverageId> {
+
+    /**
+     * 查询坐标在自然日范围内的覆盖情况
+     */
+    @Query("SELECT c FROM WeatherHistoricalCoverage c WHERE " +
+            "c.latitude = :latitude AND c.longitude = :longitude AND " +
+            "c.epochDay >= :fromDay AND c.epochDay <= :toDay")
+    List<WeatherHistoricalCoverage> findByCoordinatesInDayRange(
+            @Param("latitude") BigDecimal latitude,
+            @Param("longitude") BigDecimal longitude,
+            @Param("fromDay") Long fromDay,
+            @Param("toDay") Long toDay);
+
+    /**
+     * 根据网格坐标键查询自然日范围内的覆盖情况
+     */
+    default List<WeatherHistoricalCoverage> findByKeyInDayRange(CoordinateKey key, Long fromDay, Long toDay) {
+        return findByCoordinatesInDayRange(key.getLatitude(), key.getLongitude(), fromDay, toDay);
+    }
+}
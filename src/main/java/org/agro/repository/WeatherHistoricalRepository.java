@@ -1,6 +1,7 @@
 package org.agro.repository;
 
 import org.agro.entity.WeatherHistorical;
+import org.agro.util.CoordinateKey;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -47,4 +48,11 @@ public interface WeatherHistoricalRepository extends JpaRepository<WeatherHistor
             @Param("latitude") BigDecimal latitude,
             @Param("longitude") BigDecimal longitude,
             @Param("dt") Long dt);
-} 
\ No newline at end of file
+
+    /**
+     * 根据网格坐标键及时间范围查询历史天气数据
+     */
+    default List<WeatherHistorical> findByKeyInTimeRange(CoordinateKey key, Long startTime, Long endTime) {
+        return findByCoordinatesInTimeRange(key.getLatitude(), key.getLongitude(), startTime, endTime);
+    }
+}
@@ -0,0 +1,270 @@
+package org.agro.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.entity.WeatherCurrent;
+import org.agro.entity.WeatherForecast;
+import org.agro.entity.WeatherHistorical;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 天气数据批量写入
+ * 绕过JPA（IDENTITY主键会禁用Hibernate批量插入），以JDBC批处理执行 INSERT ... ON DUPLICATE KEY UPDATE，
+ * 替代逐条"先查询后插入"，唯一约束冲突由数据库直接合并，无需捕获异常重试
+ */
+@Slf4j
+@Repository
+public class WeatherUpsertRepository {
+
+    private static final Map<String, Function<WeatherCurrent, Object>> CURRENT_COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, Function<WeatherForecast, Object>> FORECAST_COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, Function<WeatherHistorical, Object>> HISTORICAL_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        CURRENT_COLUMNS.put("latitude", WeatherCurrent::getLatitude);
+        CURRENT_COLUMNS.put("longitude", WeatherCurrent::getLongitude);
+        CURRENT_COLUMNS.put("dt", WeatherCurrent::getDt);
+        CURRENT_COLUMNS.put("temp", WeatherCurrent::getTemp);
+        CURRENT_COLUMNS.put("feels_like", WeatherCurrent::getFeelsLike);
+        CURRENT_COLUMNS.put("temp_min", WeatherCurrent::getTempMin);
+        CURRENT_COLUMNS.put("temp_max", WeatherCurrent::getTempMax);
+        CURRENT_COLUMNS.put("pressure", WeatherCurrent::getPressure);
+        CURRENT_COLUMNS.put("humidity", WeatherCurrent::getHumidity);
+        CURRENT_COLUMNS.put("sea_level", WeatherCurrent::getSeaLevel);
+        CURRENT_COLUMNS.put("grnd_level", WeatherCurrent::getGrndLevel);
+        CURRENT_COLUMNS.put("wind_speed", WeatherCurrent::getWindSpeed);
+        CURRENT_COLUMNS.put("wind_deg", WeatherCurrent::getWindDeg);
+        CURRENT_COLUMNS.put("wind_gust", WeatherCurrent::getWindGust);
+        CURRENT_COLUMNS.put("clouds_all", WeatherCurrent::getCloudsAll);
+        CURRENT_COLUMNS.put("visibility", WeatherCurrent::getVisibility);
+        CURRENT_COLUMNS.put("rain1h", WeatherCurrent::getRain1h);
+        CURRENT_COLUMNS.put("snow1h", WeatherCurrent::getSnow1h);
+        CURRENT_COLUMNS.put("weather_id", WeatherCurrent::getWeatherId);
+        CURRENT_COLUMNS.put("weather_main", WeatherCurrent::getWeatherMain);
+        CURRENT_COLUMNS.put("weather_description", WeatherCurrent::getWeatherDescription);
+        CURRENT_COLUMNS.put("weather_icon", WeatherCurrent::getWeatherIcon);
+        CURRENT_COLUMNS.put("country", WeatherCurrent::getCountry);
+        CURRENT_COLUMNS.put("sunrise", WeatherCurrent::getSunrise);
+        CURRENT_COLUMNS.put("sunset", WeatherCurrent::getSunset);
+        CURRENT_COLUMNS.put("timezone", WeatherCurrent::getTimezone);
+        CURRENT_COLUMNS.put("name", WeatherCurrent::getName);
+
+        FORECAST_COLUMNS.put("latitude", WeatherForecast::getLatitude);
+        FORECAST_COLUMNS.put("longitude", WeatherForecast::getLongitude);
+        FORECAST_COLUMNS.put("dt", WeatherForecast::getDt);
+        FORECAST_COLUMNS.put("forecast_type", WeatherForecast::getForecastType);
+        FORECAST_COLUMNS.put("sunrise", WeatherForecast::getSunrise);
+        FORECAST_COLUMNS.put("sunset", WeatherForecast::getSunset);
+        FORECAST_COLUMNS.put("temp", WeatherForecast::getTemp);
+        FORECAST_COLUMNS.put("feels_like", WeatherForecast::getFeelsLike);
+        FORECAST_COLUMNS.put("temp_min", WeatherForecast::getTempMin);
+        FORECAST_COLUMNS.put("temp_max", WeatherForecast::getTempMax);
+        FORECAST_COLUMNS.put("pressure", WeatherForecast::getPressure);
+        FORECAST_COLUMNS.put("humidity", WeatherForecast::getHumidity);
+        FORECAST_COLUMNS.put("wind_speed", WeatherForecast::getWindSpeed);
+        FORECAST_COLUMNS.put("wind_deg", WeatherForecast::getWindDeg);
+        FORECAST_COLUMNS.put("wind_gust", WeatherForecast::getWindGust);
+        FORECAST_COLUMNS.put("clouds_all", WeatherForecast::getCloudsAll);
+        FORECAST_COLUMNS.put("visibility", WeatherForecast::getVisibility);
+        FORECAST_COLUMNS.put("pop", WeatherForecast::getPop);
+        FORECAST_COLUMNS.put("rain1h", WeatherForecast::getRain1h);
+        FORECAST_COLUMNS.put("snow1h", WeatherForecast::getSnow1h);
+        FORECAST_COLUMNS.put("weather_id", WeatherForecast::getWeatherId);
+        FORECAST_COLUMNS.put("weather_main", WeatherForecast::getWeatherMain);
+        FORECAST_COLUMNS.put("weather_description", WeatherForecast::getWeatherDescription);
+        FORECAST_COLUMNS.put("weather_icon", WeatherForecast::getWeatherIcon);
+        FORECAST_COLUMNS.put("dt_txt", WeatherForecast::getDtTxt);
+        FORECAST_COLUMNS.put("issued_at", WeatherForecast::getIssuedAt);
+
+        HISTORICAL_COLUMNS.put("latitude", WeatherHistorical::getLatitude);
+        HISTORICAL_COLUMNS.put("longitude", WeatherHistorical::getLongitude);
+        HISTORICAL_COLUMNS.put("dt", WeatherHistorical::getDt);
+        HISTORICAL_COLUMNS.put("temp", WeatherHistorical::getTemp);
+        HISTORICAL_COLUMNS.put("feels_like", WeatherHistorical::getFeelsLike);
+        HISTORICAL_COLUMNS.put("pressure", WeatherHistorical::getPressure);
+        HISTORICAL_COLUMNS.put("humidity", WeatherHistorical::getHumidity);
+        HISTORICAL_COLUMNS.put("temp_min", WeatherHistorical::getTempMin);
+        HISTORICAL_COLUMNS.put("temp_max", WeatherHistorical::getTempMax);
+        HISTORICAL_COLUMNS.put("wind_speed", WeatherHistorical::getWindSpeed);
+        HISTORICAL_COLUMNS.put("wind_deg", WeatherHistorical::getWindDeg);
+        HISTORICAL_COLUMNS.put("clouds_all", WeatherHistorical::getCloudsAll);
+        HISTORICAL_COLUMNS.put("rain1h", WeatherHistorical::getRain1h);
+        HISTORICAL_COLUMNS.put("rain3h", WeatherHistorical::getRain3h);
+        HISTORICAL_COLUMNS.put("snow1h", WeatherHistorical::getSnow1h);
+        HISTORICAL_COLUMNS.put("snow3h", WeatherHistorical::getSnow3h);
+        HISTORICAL_COLUMNS.put("weather_id", WeatherHistorical::getWeatherId);
+        HISTORICAL_COLUMNS.put("weather_main", WeatherHistorical::getWeatherMain);
+        HISTORICAL_COLUMNS.put("weather_description", WeatherHistorical::getWeatherDescription);
+        HISTORICAL_COLUMNS.put("weather_icon", WeatherHistorical::getWeatherIcon);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WeatherCurrentRepository currentRepository;
+    private final WeatherForecastRepository forecastRepository;
+    private final WeatherHistoricalRepository historicalRepository;
+
+    private final int batchSize;
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder batchesWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    @Autowired
+    public WeatherUpsertRepository(JdbcTemplate jdbcTemplate,
+                                   OpenWeatherMapConfig weatherConfig,
+                                   WeatherCurrentRepository currentRepository,
+                                   WeatherForecastRepository forecastRepository,
+                                   WeatherHistoricalRepository historicalRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, weatherConfig.getIngestBatchSize());
+        this.currentRepository = currentRepository;
+        this.forecastRepository = forecastRepository;
+        this.historicalRepository = historicalRepository;
+    }
+
+    /**
+     * 写入一条实时天气，返回数据库中存储的记录
+     */
+    public WeatherCurrent upsertCurrent(WeatherCurrent weatherCurrent) {
+        upsert("weather_current", new String[]{"latitude", "longitude", "dt"},
+                CURRENT_COLUMNS, Collections.singletonList(weatherCurrent));
+        return currentRepository.findByLatitudeAndLongitudeAndDt(
+                        weatherCurrent.getLatitude(), weatherCurrent.getLongitude(), weatherCurrent.getDt())
+                .orElse(weatherCurrent);
+    }
+
+    /**
+     * 批量写入同一坐标、同一预报类型的预报数据，返回数据库中存储的记录（按时间升序），
+     * 未能查回的记录使用传入的数据
+     */
+    public List<WeatherForecast> upsertForecasts(List<WeatherForecast> forecasts) {
+        if (forecasts == null || forecasts.isEmpty()) {
+            return forecasts;
+        }
+        upsert("weather_forecast", new String[]{"latitude", "longitude", "dt", "forecast_type"},
+                FORECAST_COLUMNS, forecasts);
+
+        WeatherForecast first = forecasts.get(0);
+        List<Long> dts = forecasts.stream().map(WeatherForecast::getDt).collect(Collectors.toList());
+        Map<Long, WeatherForecast> stored = forecastRepository.findByCoordinatesAndTypeInTimeRange(
+                        first.getLatitude(), first.getLongitude(), first.getForecastType(),
+                        Collections.min(dts), Collections.max(dts))
+                .stream()
+                .collect(Collectors.toMap(WeatherForecast::getDt, f -> f, (a, b) -> a));
+        return forecasts.stream()
+                .map(f -> stored.getOrDefault(f.getDt(), f))
+                .sorted(Comparator.comparing(WeatherForecast::getDt))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 批量写入同一坐标的历史天气数据，返回数据库中存储的记录（按时间升序），
+     * 未能查回的记录使用传入的数据
+     */
+    public List<WeatherHistorical> upsertHistorical(List<WeatherHistorical> historicals) {
+        if (historicals == null || historicals.isEmpty()) {
+            return historicals;
+        }
+        upsert("weather_historical", new String[]{"latitude", "longitude", "dt"},
+                HISTORICAL_COLUMNS, historicals);
+
+        WeatherHistorical first = historicals.get(0);
+        List<Long> dts = historicals.stream().map(WeatherHistorical::getDt).collect(Collectors.toList());
+        Map<Long, WeatherHistorical> stored = historicalRepository.findByCoordinatesInTimeRange(
+                        first.getLatitude(), first.getLongitude(), Collections.min(dts), Collections.max(dts))
+                .stream()
+                .collect(Collectors.toMap(WeatherHistorical::getDt, h -> h, (a, b) -> a));
+        return historicals.stream()
+                .map(h -> stored.getOrDefault(h.getDt(), h))
+                .sorted(Comparator.comparing(WeatherHistorical::getDt))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 合并写入坐标各自然日的历史天气小时覆盖掩码（与已有掩码按位或）
+     */
+    public void upsertHistoricalCoverage(BigDecimal latitude, BigDecimal longitude, Map<Long, Integer> masks) {
+        if (masks.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO weather_historical_coverage (latitude, longitude, epoch_day, hour_mask, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+                + "hour_mask = hour_mask | VALUES(hour_mask), updated_at = VALUES(updated_at)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(sql, new ArrayList<>(masks.entrySet()), batchSize, (ps, entry) -> {
+            ps.setBigDecimal(1, latitude);
+            ps.setBigDecimal(2, longitude);
+            ps.setLong(3, entry.getKey());
+            ps.setInt(4, entry.getValue());
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /**
+     * 写入统计（累计行数、语句批次、耗时及吞吐量）
+     */
+    public Map<String, Object> stats() {
+        long rows = rowsWritten.sum();
+        long nanos = writeNanos.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("batchSize", batchSize);
+        result.put("rowsWritten", rows);
+        result.put("batches", batchesWritten.sum());
+        result.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(nanos));
+        result.put("rowsPerSecond", nanos == 0 ? 0 : rows * 1_000_000_000L / nanos);
+        return result;
+    }
+
+    /**
+     * 以JDBC批处理写入数据，每batchSize行提交一个批次，created_at 只在插入时写入
+     * MySQL连接开启 rewriteBatchedStatements 后，驱动会把每个批次改写为一条多行 INSERT 语句
+     */
+    private <T> void upsert(String table, String[] keyColumns, Map<String, Function<T, Object>> columns, List<T> rows) {
+        List<String> columnNames = new ArrayList<>(columns.keySet());
+        columnNames.add("created_at");
+        String placeholders = columnNames.stream().map(c -> "?").collect(Collectors.joining(", "));
+
+        List<String> keys = List.of(keyColumns);
+        String updates = columns.keySet().stream()
+                .filter(c -> !keys.contains(c))
+                .map(c -> c + " = VALUES(" + c + ")")
+                .collect(Collectors.joining(", "));
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columnNames) + ") VALUES (" + placeholders + ")"
+                + " ON DUPLICATE KEY UPDATE " + updates;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        long start = System.nanoTime();
+        int[][] batches = jdbcTemplate.batchUpdate(sql, rows, batchSize, (ps, row) -> {
+            int index = 1;
+            for (Function<T, Object> getter : columns.values()) {
+                StatementCreatorUtils.setParameterValue(ps, index++, SqlTypeValue.TYPE_UNKNOWN, getter.apply(row));
+            }
+            ps.setTimestamp(index, now);
+        });
+        long elapsed = System.nanoTime() - start;
+
+        rowsWritten.add(rows.size());
+        batchesWritten.add(batches.length);
+        writeNanos.add(elapsed);
+        log.debug("Upserted {} rows into {} in {} batches, {} ms ({} rows/s)", rows.size(), table, batches.length,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), elapsed == 0 ? 0 : rows.size() * 1_000_000_000L / elapsed);
+    }
+}
@@ -1,5 +1,6 @@
 package org.agro.security;
 
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,15 +30,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            Claims claims = jwt != null ? jwtUtils.validateAndGetClaims(jwt) : null;
+            if (claims != null && tokenRevocationService.isRevoked(claims)) {
+                logger.warn("JWT令牌已被吊销: {}", claims.getSubject());
+                claims = null;
+            }
+            if (claims != null) {
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // 用户信息按用户名和签发时间缓存，用户变化时由用户服务失效
+                UserDetails userDetails = userPrincipalCache.get(claims.getSubject(), claims.getIssuedAt(),
+                        userDetailsService::loadUserByUsername);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
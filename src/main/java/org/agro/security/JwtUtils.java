@@ -1,5 +1,7 @@
 package org.agro.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
@@ -8,13 +10,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT工具类
- * 用于生成和验证JWT令牌
+ * 用于生成和验证JWT令牌。签名密钥和解析器在启动时创建一次；
+ * 验证通过的令牌按完整令牌缓存其声明，同一令牌再次请求时只检查过期时间，不重复计算签名
  */
 @Component
 public class JwtUtils {
@@ -26,6 +32,28 @@ public class JwtUtils {
     @Value("${jwt.expirationMs}")
     private int jwtExpirationMs;
 
+    @Value("${jwt.verifiedCacheSize:10000}")
+    private int verifiedCacheSize;
+
+    // 已验证令牌缓存的兜底过期时间，令牌本身过期时提前失效
+    private static final long VERIFIED_EXPIRE_MINUTES = 10;
+
+    private Key signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        if (verifiedCacheSize > 0) {
+            verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(verifiedCacheSize)
+                    .expireAfterWrite(VERIFIED_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                    .build();
+        }
+    }
+
     /**
      * 根据用户认证信息生成JWT令牌
      */
@@ -33,6 +61,7 @@ public class JwtUtils {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
         
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userPrincipal.getUsername())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
@@ -45,6 +74,7 @@ public class JwtUtils {
      */
     public String generateJwtToken(String username) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
@@ -52,25 +82,56 @@ public class JwtUtils {
                 .compact();
     }
 
+    /**
+     * 令牌有效期（毫秒）
+     */
+    public long getJwtExpirationMs() {
+        return jwtExpirationMs;
+    }
+
     /**
      * 从JWT令牌中获取用户名
      */
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return getClaimsFromJwtToken(token).getSubject();
+    }
+
+    /**
+     * 从JWT令牌中获取全部声明（用户名、签发时间等）
+     */
+    public Claims getClaimsFromJwtToken(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
      * 验证JWT令牌是否有效
      */
     public boolean validateJwtToken(String authToken) {
+        return validateAndGetClaims(authToken) != null;
+    }
+
+    /**
+     * 验证JWT令牌并返回其声明，只解析一次；令牌无效时返回null
+     */
+    public Claims validateAndGetClaims(String authToken) {
+        if (verifiedTokens != null && authToken != null) {
+            Claims cached = verifiedTokens.getIfPresent(authToken);
+            if (cached != null) {
+                if (cached.getExpiration() == null || cached.getExpiration().after(new Date())) {
+                    return cached;
+                }
+                verifiedTokens.invalidate(authToken);
+                logger.error("JWT令牌已过期: {}", cached.getExpiration());
+                return null;
+            }
+        }
+
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(authToken).getBody();
+            if (verifiedTokens != null) {
+                verifiedTokens.put(authToken, claims);
+            }
+            return claims;
         } catch (MalformedJwtException e) {
             logger.error("无效的JWT令牌: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -82,14 +143,13 @@ public class JwtUtils {
         } catch (SignatureException e) {
             logger.error("JWT签名验证失败: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
     
     /**
      * 获取签名密钥
      */
     private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,200 @@
+package org.agro.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import org.agro.entity.RevokedToken;
+import org.agro.repository.RevokedTokenRepository;
+import org.agro.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌吊销服务
+ * 吊销记录保存在数据库中，内存中以布隆过滤器记录全部未过期的吊销ID：
+ * 绝大多数请求的令牌不在过滤器中，一次位检查即可放行；命中过滤器时再查询数据库确认（结果短时缓存）。
+ * 其他节点新增的吊销记录每隔几秒增量加载到过滤器中；过期的吊销记录由后台定时清理，并按剩余记录重建过滤器
+ */
+@Service
+public class TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // 吊销用户全部令牌时记录ID的前缀
+    private static final String USER_PREFIX = "user:";
+
+    private static final int MIN_EXPECTED_ENTRIES = 10000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long PRUNE_INTERVAL_MILLIS = 10 * 60_000L;
+    private static final long REFRESH_INTERVAL_MILLIS = 5_000L;
+    // 增量加载时向前多取的时间，覆盖节点间时钟偏差及吊销事务提交前的间隔
+    private static final long REFRESH_OVERLAP_SECONDS = 30L;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final JwtUtils jwtUtils;
+
+    private volatile BloomFilter filter = new BloomFilter(MIN_EXPECTED_ENTRIES, FALSE_POSITIVE_RATE);
+
+    // 过滤器最近一次从数据库加载的时间，由this保护
+    private LocalDateTime loadedAt;
+
+    // 过滤器命中后数据库确认的结果
+    private final Cache<String, Optional<RevokedToken>> confirmed = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, JwtUtils jwtUtils) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.jwtUtils = jwtUtils;
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuildFilter();
+    }
+
+    /**
+     * 令牌是否已被吊销（单独吊销，或所属用户在令牌签发后吊销了全部令牌）
+     */
+    public boolean isRevoked(Claims claims) {
+        String tokenId = claims.getId();
+        if (tokenId != null && lookup(tokenId).isPresent()) {
+            return true;
+        }
+        if (claims.getSubject() == null) {
+            return false;
+        }
+        Optional<RevokedToken> userRevocation = lookup(USER_PREFIX + claims.getSubject());
+        if (!userRevocation.isPresent()) {
+            return false;
+        }
+        // 签发时间只精确到秒，吊销时间按秒向上取整记录，签发时间不晚于吊销时间的令牌均视为已吊销，
+        // 与吊销同一秒内签发的令牌（如吊销后立即重新登录）同样无效
+        Date revokedAt = toDate(userRevocation.get().getRevokedAt());
+        return claims.getIssuedAt() == null || !claims.getIssuedAt().after(revokedAt);
+    }
+
+    /**
+     * 吊销单个令牌
+     */
+    public void revokeToken(Claims claims, Long userId) {
+        if (claims.getId() == null) {
+            throw new IllegalArgumentException("令牌没有ID，无法单独吊销");
+        }
+        Date expiration = claims.getExpiration() != null ? claims.getExpiration()
+                : new Date(System.currentTimeMillis() + jwtUtils.getJwtExpirationMs());
+        revokeToken(claims.getId(), userId, toLocalDateTime(expiration));
+    }
+
+    /**
+     * 按令牌ID吊销，令牌过期时间未知时按最长有效期保留记录
+     */
+    public void revokeToken(String tokenId, Long userId, LocalDateTime expiresAt) {
+        if (tokenId == null || tokenId.isEmpty() || tokenId.startsWith(USER_PREFIX)) {
+            throw new IllegalArgumentException("无效的令牌ID");
+        }
+        save(tokenId, userId, expiresAt != null ? expiresAt : maxExpiry());
+        logger.info("令牌已吊销: {}", tokenId);
+    }
+
+    /**
+     * 吊销用户当前已签发的全部令牌
+     */
+    public void revokeAllForUser(Long userId, String username) {
+        save(USER_PREFIX + username, userId, maxExpiry());
+        logger.info("用户{}的全部令牌已吊销", username);
+    }
+
+    /**
+     * 定时清理已过期的吊销记录并重建过滤器
+     */
+    @Scheduled(fixedDelay = PRUNE_INTERVAL_MILLIS, initialDelay = PRUNE_INTERVAL_MILLIS)
+    public void pruneExpired() {
+        int removed = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            logger.info("已清理{}条过期的令牌吊销记录", removed);
+        }
+        rebuildFilter();
+    }
+
+    /**
+     * 增量加载上次加载以来新增或更新的吊销记录，使其他节点的吊销在几秒内生效
+     */
+    @Scheduled(fixedDelay = REFRESH_INTERVAL_MILLIS, initialDelay = REFRESH_INTERVAL_MILLIS)
+    public synchronized void refreshFilter() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> ids = revokedTokenRepository.findActiveTokenIdsRevokedSince(
+                loadedAt.minusSeconds(REFRESH_OVERLAP_SECONDS), now);
+        for (String id : ids) {
+            filter.put(id);
+            confirmed.invalidate(id);
+        }
+        loadedAt = now;
+    }
+
+    private Optional<RevokedToken> lookup(String id) {
+        if (!filter.mightContain(id)) {
+            return Optional.empty();
+        }
+        Optional<RevokedToken> revoked = confirmed.get(id, revokedTokenRepository::findById);
+        if (revoked.isPresent() && revoked.get().getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return revoked;
+    }
+
+    private synchronized void save(String id, Long userId, LocalDateTime expiresAt) {
+        RevokedToken revoked = new RevokedToken();
+        revoked.setTokenId(id);
+        revoked.setUserId(userId);
+        revoked.setRevokedAt(ceilToSecond(LocalDateTime.now()));
+        revoked.setExpiresAt(expiresAt);
+        revokedTokenRepository.save(revoked);
+        filter.put(id);
+        confirmed.invalidate(id);
+    }
+
+    /**
+     * 按数据库中未过期的记录重建过滤器，容量不少于记录数的两倍
+     * 与吊销互斥，避免重建期间新增的吊销在替换过滤器后丢失
+     */
+    private synchronized void rebuildFilter() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> ids = revokedTokenRepository.findActiveTokenIds(now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(MIN_EXPECTED_ENTRIES, ids.size() * 2), FALSE_POSITIVE_RATE);
+        ids.forEach(rebuilt::put);
+        filter = rebuilt;
+        confirmed.invalidateAll();
+        loadedAt = now;
+    }
+
+    private LocalDateTime maxExpiry() {
+        return LocalDateTime.now().plus(jwtUtils.getJwtExpirationMs(), ChronoUnit.MILLIS);
+    }
+
+    private static LocalDateTime ceilToSecond(LocalDateTime time) {
+        LocalDateTime truncated = time.truncatedTo(ChronoUnit.SECONDS);
+        return truncated.equals(time) ? truncated : truncated.plusSeconds(1);
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,58 @@
+package org.agro.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 已认证用户信息缓存
+ * 按用户名和令牌签发时间缓存JWT认证时加载的用户信息，避免每个请求都查询数据库；
+ * 用户状态、资料或密码变化时由用户服务主动失效，过期时间仅作兜底
+ */
+@Component
+public class UserPrincipalCache {
+
+    private static final int MAX_SIZE = 10000;
+    private static final long EXPIRE_SECONDS = 60;
+
+    private final Cache<String, UserDetails> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .expireAfterWrite(EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * 获取用户信息，未缓存时通过loader加载（加载失败，如用户不存在或已冻结时不缓存）
+     */
+    public UserDetails get(String username, Date issuedAt, Function<String, UserDetails> loader) {
+        String key = username + ":" + (issuedAt == null ? 0 : issuedAt.getTime());
+        return cache.get(key, k -> loader.apply(username));
+    }
+
+    /**
+     * 失效用户的全部缓存
+     * 在事务中调用时，事务提交后再失效一次，避免提交前被其他请求重新加载的旧数据留在缓存中
+     */
+    public void evictUser(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId) {
+        cache.asMap().values().removeIf(user ->
+                user instanceof UserDetailsImpl && userId.equals(((UserDetailsImpl) user).getId()));
+    }
+}
@@ -0,0 +1,16 @@
+package org.agro.service;
+
+import org.agro.dto.DashboardDTO;
+
+/**
+ * 首页聚合数据服务接口
+ */
+public interface DashboardService {
+
+    /**
+     * 获取用户首页聚合数据
+     * @param userId 用户ID
+     * @return 地块、地块组、地块实时天气、未读通知数量和有效公告
+     */
+    DashboardDTO getDashboard(Long userId);
+}
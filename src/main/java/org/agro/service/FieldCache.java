@@ -0,0 +1,54 @@
+package org.agro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.agro.entity.Field;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 地块本地缓存
+ * 按地块ID缓存地块信息，供按地块查询天气等高频读取使用，
+ * 地块更新、删除或所属关系变化时由对应服务主动失效，过期时间仅作兜底
+ */
+@Component
+public class FieldCache {
+
+    private static final int MAX_SIZE = 10000;
+    private static final long EXPIRE_MINUTES = 10;
+
+    private final Cache<Long, Optional<Field>> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 获取地块，未缓存时通过loader加载（不存在的地块不缓存）
+     */
+    public Optional<Field> get(Long id, Function<Long, Optional<Field>> loader) {
+        Optional<Field> cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<Field> loaded = loader.apply(id);
+        loaded.ifPresent(field -> cache.put(id, loaded));
+        return loaded;
+    }
+
+    /**
+     * 失效单个地块
+     */
+    public void evict(Long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * 失效全部地块（批量删除等无法逐个定位的场景）
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
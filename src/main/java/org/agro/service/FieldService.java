@@ -3,6 +3,7 @@ package org.agro.service;
 import org.agro.dto.FieldDTO;
 import org.agro.entity.Field;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -56,4 +57,12 @@ public interface FieldService {
      * @return 地块详情
      */
     Field getField(Long userId, Long id);
+    
+    /**
+     * 批量获取地块，任一地块不存在或不属于该用户时抛出异常
+     * @param userId 用户ID
+     * @param ids 地块ID列表
+     * @return 地块列表，与ID顺序一致
+     */
+    List<Field> getFieldsByIds(Long userId, Collection<Long> ids);
 } 
\ No newline at end of file
@@ -0,0 +1,385 @@
+package org.agro.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.dto.WeatherRequestDTO;
+import org.agro.entity.Field;
+import org.agro.entity.HistoricalBackfillJob;
+import org.agro.entity.HistoricalBackfillTask;
+import org.agro.exception.ResourceNotFoundException;
+import org.agro.repository.FieldRepository;
+import org.agro.repository.HistoricalBackfillJobRepository;
+import org.agro.repository.HistoricalBackfillTaskRepository;
+import org.agro.util.CoordinateGrid;
+import org.agro.util.CoordinateKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 历史天气回填服务
+ * 管理员发起后，为所有地块坐标（按网格去重）回填最近N年的逐小时历史数据。
+ * 每个坐标从最近的时间向前按窗口回填，已覆盖的小时不会重复请求；
+ * 调用使用后台额度，额度不足或上游不可用时按递增间隔重试，不占用交互请求的余量。
+ * 每个窗口完成后在数据库中记录进度，应用重启后自动从记录的进度继续
+ */
+@Slf4j
+@Service
+public class HistoricalBackfillService {
+
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_COMPLETED = 1;
+    public static final int STATUS_CANCELLED = 2;
+
+    private static final long SECONDS_PER_HOUR = 3600L;
+    private static final int MAX_YEARS = 40;
+
+    private final HistoricalBackfillJobRepository jobRepository;
+    private final HistoricalBackfillTaskRepository taskRepository;
+    private final FieldRepository fieldRepository;
+    private final WeatherService weatherService;
+    private final CoordinateGrid coordinateGrid;
+    private final OpenWeatherMapConfig weatherConfig;
+    private final ThreadPoolTaskExecutor backfillExecutor;
+
+    // 本进程内各运行中任务的处理速度，用于估算剩余时间
+    private final Map<Long, JobRate> rates = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService retryTimer;
+
+    @Autowired
+    public HistoricalBackfillService(HistoricalBackfillJobRepository jobRepository,
+                                     HistoricalBackfillTaskRepository taskRepository,
+                                     FieldRepository fieldRepository,
+                                     WeatherService weatherService,
+                                     CoordinateGrid coordinateGrid,
+                                     OpenWeatherMapConfig weatherConfig,
+                                     @Qualifier("weatherBackfillExecutor") ThreadPoolTaskExecutor backfillExecutor) {
+        this.jobRepository = jobRepository;
+        this.taskRepository = taskRepository;
+        this.fieldRepository = fieldRepository;
+        this.weatherService = weatherService;
+        this.coordinateGrid = coordinateGrid;
+        this.weatherConfig = weatherConfig;
+        this.backfillExecutor = backfillExecutor;
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "weather-backfill-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryTimer.shutdownNow();
+    }
+
+    /**
+     * 发起回填任务，同时只能有一个运行中的任务
+     *
+     * @param years    回填年数
+     * @param operator 发起人用户名
+     */
+    public HistoricalBackfillJob startJob(int years, String operator) {
+        if (years < 1 || years > MAX_YEARS) {
+            throw new IllegalArgumentException("回填年数必须在1到" + MAX_YEARS + "之间");
+        }
+        if (jobRepository.existsByStatus(STATUS_RUNNING)) {
+            throw new RuntimeException("已有正在运行的历史数据回填任务");
+        }
+
+        Set<CoordinateKey> keys = new LinkedHashSet<>();
+        for (Field field : fieldRepository.findAll()) {
+            if (field.getLatitude() != null && field.getLongitude() != null) {
+                keys.add(coordinateGrid.keyOf(field.getLatitude(), field.getLongitude()));
+            }
+        }
+        if (keys.isEmpty()) {
+            throw new RuntimeException("没有可回填的地块坐标");
+        }
+
+        // 范围截止到当前整点，之前的小时才有历史数据
+        long endTime = Math.floorDiv(System.currentTimeMillis() / 1000, SECONDS_PER_HOUR) * SECONDS_PER_HOUR;
+        long startTime = LocalDateTime.ofEpochSecond(endTime, 0, ZoneOffset.UTC)
+                .minusYears(years).toEpochSecond(ZoneOffset.UTC);
+
+        HistoricalBackfillJob job = new HistoricalBackfillJob();
+        job.setYears(years);
+        job.setStartTime(startTime);
+        job.setEndTime(endTime);
+        job.setCellCount(keys.size());
+        job.setStatus(STATUS_RUNNING);
+        job.setCreatedBy(operator);
+        job = jobRepository.save(job);
+
+        List<HistoricalBackfillTask> tasks = new ArrayList<>(keys.size());
+        for (CoordinateKey key : keys) {
+            HistoricalBackfillTask task = new HistoricalBackfillTask();
+            task.setJobId(job.getId());
+            task.setLatitude(key.getLatitude());
+            task.setLongitude(key.getLongitude());
+            task.setCursorTime(endTime);
+            tasks.add(task);
+        }
+        tasks = taskRepository.saveAll(tasks);
+
+        log.info("{}发起历史数据回填任务[{}]，回填{}年，共{}个网格", operator, job.getId(), years, keys.size());
+        submit(job, tasks);
+        return job;
+    }
+
+    /**
+     * 取消回填任务，正在处理的窗口完成后停止
+     */
+    public HistoricalBackfillJob cancelJob(Long jobId) {
+        HistoricalBackfillJob job = getJob(jobId);
+        if (job.getStatus() != STATUS_RUNNING) {
+            throw new RuntimeException("回填任务不在运行中");
+        }
+        job.setStatus(STATUS_CANCELLED);
+        job.setFinishedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        rates.remove(jobId);
+        log.info("历史数据回填任务[{}]已取消", jobId);
+        return job;
+    }
+
+    /**
+     * 回填任务进度
+     */
+    public Map<String, Object> getProgress(Long jobId) {
+        return progress(getJob(jobId));
+    }
+
+    /**
+     * 最近的回填任务及其进度
+     */
+    public List<Map<String, Object>> getRecentJobs() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (HistoricalBackfillJob job : jobRepository.findTop20ByOrderByCreatedAtDesc()) {
+            result.add(progress(job));
+        }
+        return result;
+    }
+
+    /**
+     * 应用启动完成后继续未完成的回填任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        for (HistoricalBackfillJob job : jobRepository.findByStatus(STATUS_RUNNING)) {
+            List<HistoricalBackfillTask> tasks = taskRepository.findByJobIdAndCompletedFalse(job.getId());
+            log.info("继续历史数据回填任务[{}]，剩余{}个网格", job.getId(), tasks.size());
+            if (tasks.isEmpty()) {
+                completeJob(job.getId());
+            } else {
+                submit(job, tasks);
+            }
+        }
+    }
+
+    private HistoricalBackfillJob getJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("回填任务不存在"));
+    }
+
+    private void submit(HistoricalBackfillJob job, List<HistoricalBackfillTask> tasks) {
+        rates.put(job.getId(), new JobRate());
+        for (HistoricalBackfillTask task : tasks) {
+            try {
+                backfillExecutor.execute(() -> runTask(job, task));
+            } catch (TaskRejectedException e) {
+                log.warn("回填线程池已关闭，网格({}, {})将在重启后继续", task.getLatitude(), task.getLongitude());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 回填单个坐标，窗口获取失败或进度保存失败（如数据库暂时不可用）时按递增间隔重新提交，不占用回填线程等待
+     */
+    private void runTask(HistoricalBackfillJob job, HistoricalBackfillTask task) {
+        long delaySeconds;
+        try {
+            delaySeconds = backfillWindows(job, task);
+        } catch (RuntimeException e) {
+            task.setFailedAttempts(task.getFailedAttempts() + 1);
+            delaySeconds = retryDelaySeconds(task.getFailedAttempts());
+            log.warn("网格({}, {})回填进度保存失败: {}，{}秒后重试",
+                    task.getLatitude(), task.getLongitude(), e.getMessage(), delaySeconds);
+        }
+        if (delaySeconds > 0) {
+            scheduleRetry(job, task, delaySeconds);
+        }
+    }
+
+    /**
+     * 从cursorTime向前逐个窗口回填直到任务开始时间，每个窗口完成后记录进度。
+     * 每个窗口前从数据库确认任务仍在运行，其他节点或重启前的取消同样生效
+     *
+     * @return 窗口获取失败时的重试间隔（秒），完成或任务已停止时为0
+     */
+    private long backfillWindows(HistoricalBackfillJob job, HistoricalBackfillTask task) {
+        long windowSeconds = Math.max(1, weatherConfig.getBackfillWindowDays()) * 24 * SECONDS_PER_HOUR;
+        while (task.getCursorTime() > job.getStartTime()) {
+            if (!jobRepository.existsByIdAndStatus(job.getId(), STATUS_RUNNING)) {
+                return 0;
+            }
+            long windowStart = Math.max(job.getStartTime(), task.getCursorTime() - windowSeconds);
+            WeatherRequestDTO request = new WeatherRequestDTO();
+            request.setLatitude(task.getLatitude());
+            request.setLongitude(task.getLongitude());
+            request.setStartTime(windowStart);
+            request.setEndTime(task.getCursorTime() - 1);
+
+            String error;
+            try {
+                int failedHours = OpenWeatherMapRateLimiter.background(() -> weatherService.backfillHistoricalWeather(request));
+                error = failedHours == 0 ? null : failedHours + "小时获取失败";
+            } catch (RuntimeException e) {
+                error = e.getMessage();
+            }
+
+            if (error == null) {
+                JobRate rate = rates.get(job.getId());
+                if (rate != null) {
+                    rate.processedSeconds.add(task.getCursorTime() - windowStart);
+                }
+                task.setCursorTime(windowStart);
+                task.setFailedAttempts(0);
+                task.setLastError(null);
+                taskRepository.save(task);
+                continue;
+            }
+
+            task.setFailedAttempts(task.getFailedAttempts() + 1);
+            task.setLastError(error.length() > 255 ? error.substring(0, 255) : error);
+            taskRepository.save(task);
+            long delaySeconds = retryDelaySeconds(task.getFailedAttempts());
+            log.warn("网格({}, {})回填失败: {}，{}秒后重试", task.getLatitude(), task.getLongitude(), error, delaySeconds);
+            return delaySeconds;
+        }
+
+        task.setCompleted(true);
+        taskRepository.save(task);
+        if (taskRepository.countByJobIdAndCompletedFalse(job.getId()) == 0) {
+            completeJob(job.getId());
+        }
+        return 0;
+    }
+
+    /**
+     * 延迟后重新提交坐标回填，期间任务被取消时在下一个窗口前停止
+     */
+    private void scheduleRetry(HistoricalBackfillJob job, HistoricalBackfillTask task, long delaySeconds) {
+        try {
+            retryTimer.schedule(() -> {
+                try {
+                    backfillExecutor.execute(() -> runTask(job, task));
+                } catch (TaskRejectedException e) {
+                    log.warn("回填线程池已关闭，网格({}, {})将在重启后继续", task.getLatitude(), task.getLongitude());
+                }
+            }, delaySeconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("回填重试定时器已关闭，网格({}, {})将在重启后继续", task.getLatitude(), task.getLongitude());
+        }
+    }
+
+    private void completeJob(Long jobId) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            if (job.getStatus() == STATUS_RUNNING) {
+                job.setStatus(STATUS_COMPLETED);
+                job.setFinishedAt(LocalDateTime.now());
+                jobRepository.save(job);
+                log.info("历史数据回填任务[{}]已完成", jobId);
+            }
+        });
+        rates.remove(jobId);
+    }
+
+    private long retryDelaySeconds(int attempts) {
+        long delay = Math.max(1, weatherConfig.getBackfillRetryDelaySeconds());
+        long max = Math.max(delay, weatherConfig.getBackfillMaxRetryDelaySeconds());
+        for (int i = 1; i < attempts && delay < max; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, max);
+    }
+
+    /**
+     * 汇总回填任务进度，剩余时间按本次启动以来的处理速度估算
+     */
+    private Map<String, Object> progress(HistoricalBackfillJob job) {
+        List<HistoricalBackfillTask> tasks = taskRepository.findByJobId(job.getId());
+        long totalSeconds = (job.getEndTime() - job.getStartTime()) * tasks.size();
+        long doneSeconds = 0;
+        int completedCells = 0;
+        int retryingCells = 0;
+        for (HistoricalBackfillTask task : tasks) {
+            doneSeconds += job.getEndTime() - Math.max(job.getStartTime(), task.getCursorTime());
+            if (Boolean.TRUE.equals(task.getCompleted())) {
+                completedCells++;
+            } else if (task.getFailedAttempts() != null && task.getFailedAttempts() > 0) {
+                retryingCells++;
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", job.getId());
+        result.put("status", job.getStatus());
+        result.put("years", job.getYears());
+        result.put("startTime", job.getStartTime());
+        result.put("endTime", job.getEndTime());
+        result.put("createdBy", job.getCreatedBy());
+        result.put("createdAt", job.getCreatedAt());
+        result.put("finishedAt", job.getFinishedAt());
+        result.put("gridCells", tasks.size());
+        result.put("completedCells", completedCells);
+        result.put("retryingCells", retryingCells);
+        result.put("totalHours", totalSeconds / SECONDS_PER_HOUR);
+        result.put("completedHours", doneSeconds / SECONDS_PER_HOUR);
+        result.put("percent", totalSeconds == 0 ? 100.0 : Math.round(doneSeconds * 1000.0 / totalSeconds) / 10.0);
+
+        JobRate rate = rates.get(job.getId());
+        Long etaSeconds = null;
+        if (job.getStatus() == STATUS_RUNNING && rate != null) {
+            long processed = rate.processedSeconds.sum();
+            long elapsedMillis = System.currentTimeMillis() - rate.resumedAtMillis;
+            if (processed > 0 && elapsedMillis > 0) {
+                etaSeconds = (long) ((double) (totalSeconds - doneSeconds) / processed * elapsedMillis / 1000);
+            }
+        }
+        result.put("etaSeconds", etaSeconds);
+        result.put("estimatedFinishAt", etaSeconds == null ? null
+                : LocalDateTime.now().plusSeconds(etaSeconds));
+        return result;
+    }
+
+    /**
+     * 本次启动以来已处理的回填范围
+     */
+    private static class JobRate {
+
+        private final long resumedAtMillis = System.currentTimeMillis();
+        private final LongAdder processedSeconds = new LongAdder();
+    }
+}
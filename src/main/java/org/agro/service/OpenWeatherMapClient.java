@@ -0,0 +1,259 @@
+package org.agro.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.event.WeatherCircuitStateChangedEvent;
+import org.agro.exception.CircuitOpenException;
+import org.agro.exception.RateLimitExceededException;
+import org.agro.exception.WeatherApiException;
+import org.agro.util.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OpenWeatherMap HTTP客户端
+ * 基于java.net.http.HttpClient异步发送请求，连接由HttpClient复用（keep-alive），
+ * 每个主机的并发连接数受限，超出的请求排队等待而不占用线程；
+ * 每次调用前先经过熔断器和 {@link OpenWeatherMapRateLimiter} 检查，
+ * 上游连续失败（超时、网络错误、5xx、429）达到阈值后熔断，熔断期间立即失败
+ */
+@Slf4j
+@Component
+public class OpenWeatherMapClient {
+
+    private final HttpClient httpClient;
+    private final OpenWeatherMapRateLimiter rateLimiter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CircuitBreaker circuitBreaker;
+    private final ScheduledExecutorService circuitTimer;
+    private final ExecutorService responseExecutor;
+    private final Duration readTimeout;
+    private final int maxConnectionsPerHost;
+    private final Map<String, HostLimiter> hostLimiters = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public OpenWeatherMapClient(OpenWeatherMapConfig weatherConfig,
+                                OpenWeatherMapRateLimiter rateLimiter,
+                                ApplicationEventPublisher eventPublisher) {
+        this.rateLimiter = rateLimiter;
+        this.eventPublisher = eventPublisher;
+        this.circuitBreaker = new CircuitBreaker(weatherConfig.getCircuitFailureThreshold(),
+                weatherConfig.getCircuitOpenMillis(), this::onCircuitTransition);
+        this.circuitTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "weather-circuit-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.readTimeout = Duration.ofMillis(weatherConfig.getReadTimeoutMillis());
+        this.maxConnectionsPerHost = Math.max(1, weatherConfig.getMaxConnectionsPerHost());
+        // 响应及调用方的后续处理（解析、写库）在此线程池中执行，线程数与并发连接上限一致，
+        // 避免使用HttpClient默认的无界线程池
+        AtomicInteger threadCount = new AtomicInteger();
+        this.responseExecutor = Executors.newFixedThreadPool(maxConnectionsPerHost, runnable -> {
+            Thread thread = new Thread(runnable, "weather-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 使用HTTP/1.1，使每个主机的连接数与并发上限一致
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(responseExecutor)
+                .connectTimeout(Duration.ofMillis(weatherConfig.getConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * 异步GET请求，返回响应体
+     * 非2xx状态码、超时或网络错误时以 {@link WeatherApiException} 异常完成，
+     * 调用额度不足时以 {@link RateLimitExceededException} 异常完成
+     */
+    public CompletableFuture<String> getAsync(String url) {
+        URI uri = URI.create(url);
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new CircuitOpenException("Weather API circuit is open, skipping " + uri.getPath()));
+        }
+        if (!rateLimiter.tryAcquire()) {
+            circuitBreaker.onIgnored();
+            return CompletableFuture.failedFuture(
+                    new RateLimitExceededException("Weather API rate limit exceeded for " + uri.getPath()));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
+        HostLimiter limiter = hostLimiters.computeIfAbsent(uri.getHost(), host -> new HostLimiter(maxConnectionsPerHost));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        limiter.acquire(() -> send(request, limiter, result));
+        return result;
+    }
+
+    /**
+     * 熔断器当前状态
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * 熔断器统计信息（状态及各状态转换次数）
+     */
+    public Map<String, Object> circuitStats() {
+        return circuitBreaker.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        circuitTimer.shutdownNow();
+        responseExecutor.shutdownNow();
+    }
+
+    /**
+     * 客户端统计信息
+     */
+    public Map<String, Object> stats() {
+        long count = requests.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", count);
+        result.put("failures", failures.sum());
+        result.put("timeouts", timeouts.sum());
+        result.put("inFlight", inFlight.get());
+        result.put("avgLatencyMillis", count == 0 ? 0 : totalLatencyMillis.sum() / count);
+        Map<String, Object> waiting = new LinkedHashMap<>();
+        hostLimiters.forEach((host, limiter) -> waiting.put(host, limiter.waiting()));
+        result.put("waitingByHost", waiting);
+        return result;
+    }
+
+    private void send(HttpRequest request, HostLimiter limiter, CompletableFuture<String> result) {
+        long startNanos = System.nanoTime();
+        requests.increment();
+        inFlight.incrementAndGet();
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            limiter.release();
+            failures.increment();
+            circuitBreaker.onFailure();
+            result.completeExceptionally(new WeatherApiException("Weather API request failed: " + request.uri().getPath(), e));
+            return;
+        }
+
+        response.whenComplete((resp, e) -> {
+            inFlight.decrementAndGet();
+            limiter.release();
+            totalLatencyMillis.add((System.nanoTime() - startNanos) / 1_000_000);
+
+            if (e != null) {
+                failures.increment();
+                circuitBreaker.onFailure();
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof HttpTimeoutException) {
+                    timeouts.increment();
+                }
+                log.warn("Weather API request to {} failed: {}", request.uri().getPath(), cause.toString());
+                result.completeExceptionally(new WeatherApiException("Weather API request failed: " + request.uri().getPath(), cause));
+            } else if (resp.statusCode() / 100 != 2) {
+                failures.increment();
+                // 5xx和429说明上游不可用或过载，其余4xx为请求本身的问题，不计入熔断
+                if (resp.statusCode() >= 500 || resp.statusCode() == 429) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onIgnored();
+                }
+                log.warn("Weather API request to {} returned status {}", request.uri().getPath(), resp.statusCode());
+                result.completeExceptionally(new WeatherApiException(resp.statusCode(),
+                        "Weather API returned status " + resp.statusCode() + " for " + request.uri().getPath()));
+            } else {
+                circuitBreaker.onSuccess();
+                result.complete(resp.body());
+            }
+        });
+    }
+
+    /**
+     * 熔断器状态变化：打开时安排到期后进入半开，并发布状态变化事件
+     */
+    private void onCircuitTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+        log.warn("Weather API circuit {} -> {}", from, to);
+        if (to == CircuitBreaker.State.OPEN) {
+            circuitTimer.schedule(circuitBreaker::halfOpenIfDue, circuitBreaker.getOpenMillis(), TimeUnit.MILLISECONDS);
+        }
+        eventPublisher.publishEvent(new WeatherCircuitStateChangedEvent(from, to));
+    }
+
+    /**
+     * 单个主机的并发连接限制，许可不足时请求进入等待队列，许可释放后依次发出
+     */
+    private static class HostLimiter {
+
+        private final Deque<Runnable> waiters = new ArrayDeque<>();
+        private int available;
+
+        private HostLimiter(int permits) {
+            this.available = permits;
+        }
+
+        private void acquire(Runnable task) {
+            synchronized (this) {
+                if (available == 0) {
+                    waiters.addLast(task);
+                    return;
+                }
+                available--;
+            }
+            task.run();
+        }
+
+        private void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            }
+            // 许可直接转交给下一个等待的请求
+            next.run();
+        }
+
+        private synchronized int waiting() {
+            return waiters.size();
+        }
+    }
+}
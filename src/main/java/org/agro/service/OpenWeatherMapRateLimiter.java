@@ -0,0 +1,164 @@
+package org.agro.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.event.SystemConfigChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * OpenWeatherMap调用限流器
+ * 每分钟上限采用令牌桶（匀速补充，允许一分钟额度内的突发），每日配额按自然日计数，
+ * 两项上限均从系统配置读取。后台任务（定时同步等）不能使用为交互请求预留的额度，
+ * 额度不足时立即拒绝而不是等待，由调用方回退使用已存储的数据
+ */
+@Slf4j
+@Component
+public class OpenWeatherMapRateLimiter {
+
+    private static final ThreadLocal<Boolean> BACKGROUND = new ThreadLocal<>();
+
+    private final SystemConfigService systemConfigService;
+    private final double interactiveReserveRatio;
+
+    // 以下状态均由this保护
+    private int perMinute;
+    private int perDay;
+    private boolean limitsLoaded;
+    private double tokens;
+    private long lastRefillNanos;
+    private LocalDate day;
+    private long usedToday;
+
+    private final LongAdder permitted = new LongAdder();
+    private final LongAdder rejectedInteractive = new LongAdder();
+    private final LongAdder rejectedBackground = new LongAdder();
+
+    @Autowired
+    public OpenWeatherMapRateLimiter(SystemConfigService systemConfigService, OpenWeatherMapConfig weatherConfig) {
+        this.systemConfigService = systemConfigService;
+        this.interactiveReserveRatio = Math.min(1.0, Math.max(0.0, weatherConfig.getInteractiveReserveRatio()));
+    }
+
+    /**
+     * 以后台优先级执行操作，期间在当前线程发起的API调用使用后台额度
+     */
+    public static <T> T background(Supplier<T> action) {
+        Boolean previous = BACKGROUND.get();
+        BACKGROUND.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                BACKGROUND.remove();
+            } else {
+                BACKGROUND.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 包装操作，使其在其他线程执行时沿用当前线程的调用优先级
+     */
+    public static <T> Supplier<T> withCurrentPriority(Supplier<T> action) {
+        if (Boolean.TRUE.equals(BACKGROUND.get())) {
+            return () -> background(action);
+        }
+        return action;
+    }
+
+    /**
+     * 尝试获取一次API调用额度
+     *
+     * @return 是否允许调用
+     */
+    public boolean tryAcquire() {
+        boolean background = Boolean.TRUE.equals(BACKGROUND.get());
+        synchronized (this) {
+            loadLimits();
+            refill();
+
+            double reserveTokens = background ? perMinute * interactiveReserveRatio : 0;
+            long reserveDaily = background ? (long) (perDay * interactiveReserveRatio) : 0;
+            if (tokens - 1 < reserveTokens || usedToday + 1 > perDay - reserveDaily) {
+                (background ? rejectedBackground : rejectedInteractive).increment();
+                return false;
+            }
+
+            tokens -= 1;
+            usedToday++;
+        }
+        permitted.increment();
+        return true;
+    }
+
+    /**
+     * 限流配置变更后重新加载
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSystemConfigChanged(SystemConfigChangedEvent event) {
+        if (SystemConfigService.API_RATE_LIMIT_PER_MINUTE_KEY.equals(event.getKey())
+                || SystemConfigService.API_DAILY_QUOTA_KEY.equals(event.getKey())) {
+            synchronized (this) {
+                limitsLoaded = false;
+            }
+            log.info("OpenWeatherMap限流配置已变更: {}={}", event.getKey(), event.getValue());
+        }
+    }
+
+    /**
+     * 限流统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        synchronized (this) {
+            loadLimits();
+            refill();
+            result.put("perMinute", perMinute);
+            result.put("perDay", perDay);
+            result.put("availableTokens", (long) tokens);
+            result.put("usedToday", usedToday);
+        }
+        result.put("interactiveReserveRatio", interactiveReserveRatio);
+        result.put("permitted", permitted.sum());
+        result.put("rejectedInteractive", rejectedInteractive.sum());
+        result.put("rejectedBackground", rejectedBackground.sum());
+        return result;
+    }
+
+    private void loadLimits() {
+        if (limitsLoaded) {
+            return;
+        }
+        int newPerMinute = systemConfigService.getApiRateLimitPerMinute();
+        perDay = systemConfigService.getApiDailyQuota();
+        if (lastRefillNanos == 0) {
+            tokens = newPerMinute; // 启动时桶是满的
+            lastRefillNanos = System.nanoTime();
+        } else {
+            tokens = Math.min(tokens, newPerMinute);
+        }
+        perMinute = newPerMinute;
+        limitsLoaded = true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedMinutes = (now - lastRefillNanos) / 60_000_000_000.0;
+        tokens = Math.min(perMinute, tokens + elapsedMinutes * perMinute);
+        lastRefillNanos = now;
+
+        LocalDate today = LocalDate.now();
+        if (!today.equals(day)) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+}
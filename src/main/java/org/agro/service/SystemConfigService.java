@@ -10,6 +10,22 @@ import java.util.Map;
  * 系统配置服务接口
  */
 public interface SystemConfigService {
+
+    /**
+     * 数据拉取频率配置键（分钟）
+     */
+    String DATA_FETCH_INTERVAL_KEY = "data.fetch.interval";
+
+    /**
+     * OpenWeatherMap每分钟调用上限配置键
+     */
+    String API_RATE_LIMIT_PER_MINUTE_KEY = "openweathermap.rate.limit.per.minute";
+
+    /**
+     * OpenWeatherMap每日调用配额配置键
+     */
+    String API_DAILY_QUOTA_KEY = "openweathermap.quota.per.day";
+
     /**
      * 保存配置
      */
@@ -60,6 +76,16 @@ public interface SystemConfigService {
      */
     void saveDataFetchInterval(int minutes);
 
+    /**
+     * 获取OpenWeatherMap每分钟调用上限
+     */
+    int getApiRateLimitPerMinute();
+
+    /**
+     * 获取OpenWeatherMap每日调用配额
+     */
+    int getApiDailyQuota();
+
     /**
      * 获取邮件配置
      */
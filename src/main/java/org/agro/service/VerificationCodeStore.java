@@ -0,0 +1,27 @@
+package org.agro.service;
+
+import java.time.Duration;
+
+/**
+ * 验证码存储接口
+ * 按邮箱保存验证码并限制发送频率，由verification.code.store选择实现：
+ * memory为单节点内存存储，database保存在数据库中供多个节点共享
+ */
+public interface VerificationCodeStore {
+
+    /**
+     * 保存邮箱的验证码，覆盖之前未使用的验证码
+     */
+    void save(String email, String code, Duration ttl);
+
+    /**
+     * 使用验证码：与邮箱当前未过期的验证码一致时将其删除并返回true，同一验证码只能成功使用一次；
+     * 不一致时记一次错误，连续错误达到maxAttempts次后验证码作废，需重新发送
+     */
+    boolean consume(String email, String code, int maxAttempts);
+
+    /**
+     * 尝试占用一次发送机会，距上次发送不足interval时返回false
+     */
+    boolean tryAcquireSend(String email, Duration interval);
+}
@@ -0,0 +1,106 @@
+package org.agro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.entity.WeatherCurrent;
+import org.agro.util.CoordinateKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时天气本地缓存
+ * 按网格坐标键缓存最新一条实时天气，过期时间由数据时间戳加上数据拉取频率决定，
+ * 与数据库新鲜度判断保持一致，命中时无需访问数据库
+ */
+@Component
+public class WeatherCurrentCache {
+
+    private final SystemConfigService systemConfigService;
+    private final Cache<Long, WeatherCurrent> cache;
+
+    @Autowired
+    public WeatherCurrentCache(SystemConfigService systemConfigService, OpenWeatherMapConfig weatherConfig) {
+        this.systemConfigService = systemConfigService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(weatherConfig.getCurrentCacheMaxSize())
+                .expireAfter(new FreshnessExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取仍在有效期内的实时天气
+     */
+    public WeatherCurrent get(CoordinateKey key) {
+        return cache.getIfPresent(key.getValue());
+    }
+
+    /**
+     * 批量获取仍在有效期内的实时天气，返回键值到数据的映射（仅包含命中的条目）
+     */
+    public Map<Long, WeatherCurrent> getAll(Collection<CoordinateKey> keys) {
+        List<Long> values = new ArrayList<>(keys.size());
+        for (CoordinateKey key : keys) {
+            values.add(key.getValue());
+        }
+        return cache.getAllPresent(values);
+    }
+
+    /**
+     * 写入实时天气，仅当新数据不早于已缓存数据时覆盖
+     */
+    public void put(CoordinateKey key, WeatherCurrent weatherCurrent) {
+        if (weatherCurrent == null || weatherCurrent.getDt() == null) {
+            return;
+        }
+        cache.asMap().merge(key.getValue(), weatherCurrent,
+                (oldValue, newValue) -> newValue.getDt() >= oldValue.getDt() ? newValue : oldValue);
+    }
+
+    /**
+     * 缓存统计信息（命中、未命中、淘汰次数等）
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    /**
+     * 根据数据时间戳计算剩余有效期：dt + 拉取频率 - 当前时间
+     */
+    private class FreshnessExpiry implements Expiry<Long, WeatherCurrent> {
+
+        @Override
+        public long expireAfterCreate(Long key, WeatherCurrent value, long currentTime) {
+            long maxAgeSeconds = systemConfigService.getDataFetchInterval() * 60L;
+            long remainingSeconds = value.getDt() + maxAgeSeconds - System.currentTimeMillis() / 1000;
+            return TimeUnit.SECONDS.toNanos(Math.max(0, remainingSeconds));
+        }
+
+        @Override
+        public long expireAfterUpdate(Long key, WeatherCurrent value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long key, WeatherCurrent value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
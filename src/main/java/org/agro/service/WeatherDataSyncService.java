@@ -1,23 +1,50 @@
 package org.agro.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.dto.WeatherCurrentDTO;
 import org.agro.dto.WeatherForecastDTO;
 import org.agro.dto.WeatherRequestDTO;
 import org.agro.entity.Field;
+import org.agro.event.SystemConfigChangedEvent;
 import org.agro.repository.FieldRepository;
 import org.agro.repository.WeatherCurrentRepository;
+import org.agro.util.CoordinateGrid;
+import org.agro.util.CoordinateKey;
+import org.agro.util.FutureUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
-import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
 
 /**
  * 天气数据同步服务
  * 负责定时从 OpenWeatherMap API 获取数据，并更新到数据库
+ * 地块按坐标网格去重后并发执行：实时天气使用weatherSyncExecutor，每日预报使用单独的weatherForecastSyncExecutor，
+ * 并发上限由各自线程池大小决定，预报任务不会占用实时天气刷新的线程。
+ * 实时天气按网格维护到期时间优先队列，刷新均匀分布在整个拉取周期内，
+ * 每个网格刷新完成后按拉取频率重新入队
  */
 @Slf4j
 @Service
@@ -27,69 +54,203 @@ public class WeatherDataSyncService implements SchedulingConfigurer {
     private final WeatherCurrentRepository currentRepository;
     private final FieldRepository fieldRepository;
     private final SystemConfigService systemConfigService;
+    private final CoordinateGrid coordinateGrid;
+    private final OpenWeatherMapConfig weatherConfig;
+    private final ThreadPoolTaskExecutor syncExecutor;
+    private final ThreadPoolTaskExecutor forecastSyncExecutor;
+
+    private final SyncJob forecastJob = new SyncJob("天气预报");
+
+    // 地块变化（新增、删除、移动）的检查间隔
+    private static final long RECONCILE_INTERVAL_MILLIS = 60_000L;
+
+    // 实时天气调度状态，均由queueLock保护
+    private final Object queueLock = new Object();
+    private final PriorityQueue<DueCell> dueQueue = new PriorityQueue<>(Comparator.comparingLong((DueCell c) -> c.dueAt));
+    private final Map<Long, DueCell> scheduledCells = new HashMap<>();
+    private volatile long lastReconcileMillis;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
 
     @Autowired
     public WeatherDataSyncService(WeatherService weatherService,
                                  WeatherCurrentRepository currentRepository,
                                  FieldRepository fieldRepository,
-                                 SystemConfigService systemConfigService) {
+                                 SystemConfigService systemConfigService,
+                                 CoordinateGrid coordinateGrid,
+                                 OpenWeatherMapConfig weatherConfig,
+                                 @Qualifier("weatherSyncExecutor") ThreadPoolTaskExecutor syncExecutor,
+                                 @Qualifier("weatherForecastSyncExecutor") ThreadPoolTaskExecutor forecastSyncExecutor) {
         this.weatherService = weatherService;
         this.currentRepository = currentRepository;
         this.fieldRepository = fieldRepository;
         this.systemConfigService = systemConfigService;
+        this.coordinateGrid = coordinateGrid;
+        this.weatherConfig = weatherConfig;
+        this.syncExecutor = syncExecutor;
+        this.forecastSyncExecutor = forecastSyncExecutor;
     }
 
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
-        // 配置动态调度任务，采用从SystemConfigService获取的时间间隔
-        taskRegistrar.addTriggerTask(
-            // 要执行的任务
-            this::syncCurrentWeatherData,
-            // 触发器（根据配置的分钟数计算）
-            triggerContext -> {
-                int intervalMinutes = systemConfigService.getDataFetchInterval();
-                // 确保最小值为1分钟
-                intervalMinutes = Math.max(1, intervalMinutes);
-                String cronExpression = String.format("0 0/%d * * * ?", intervalMinutes);
-                log.debug("使用数据同步频率: {} 分钟, cron表达式: {}", intervalMinutes, cronExpression);
-                return new CronTrigger(cronExpression).nextExecutionTime(triggerContext);
-            }
-        );
+        // 固定间隔检查到期网格，取代整点全量刷新的cron任务
+        taskRegistrar.addFixedDelayTask(this::dispatchDueCells, Math.max(100L, weatherConfig.getSyncTickMillis()));
     }
 
     /**
-     * 同步实时天气数据
-     * 注意：此方法不再使用@Scheduled注解，而是通过SchedulingConfigurer动态配置
+     * 取出已到期的网格提交刷新
      */
-    public void syncCurrentWeatherData() {
-        log.info("开始同步实时天气数据...");
+    public void dispatchDueCells() {
+        long now = System.currentTimeMillis();
+        if (now - lastReconcileMillis >= RECONCILE_INTERVAL_MILLIS) {
+            try {
+                reconcileCells(now);
+            } catch (Exception e) {
+                log.error("刷新实时天气同步网格列表失败", e);
+            }
+        }
+
+        List<DueCell> dueCells = new ArrayList<>();
+        synchronized (queueLock) {
+            while (!dueQueue.isEmpty() && dueQueue.peek().dueAt <= now) {
+                dueCells.add(dueQueue.poll());
+            }
+        }
 
-        // 从数据库获取所有地块
-        List<Field> fields = fieldRepository.findAll();
+        for (DueCell cell : dueCells) {
+            totalLagMillis.add(now - cell.dueAt);
+            dispatched.increment();
+            // 数据库检查在同步线程池中执行，等待上游API期间不占用线程
+            CompletableFuture.supplyAsync(() -> refreshCell(cell), syncExecutor)
+                    .thenCompose(future -> future)
+                    .whenComplete((result, e) -> requeue(cell));
+        }
+    }
 
-        if (fields.isEmpty()) {
-            log.warn("数据库中没有地块信息，无需同步天气数据");
+    /**
+     * 数据拉取频率变更后，按新的间隔重新均匀分布所有排队中的网格
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSystemConfigChanged(SystemConfigChangedEvent event) {
+        if (!SystemConfigService.DATA_FETCH_INTERVAL_KEY.equals(event.getKey())) {
             return;
         }
+        long intervalMillis = intervalMillis();
+        int size;
+        synchronized (queueLock) {
+            List<DueCell> queued = new ArrayList<>(dueQueue);
+            queued.sort(Comparator.comparingLong((DueCell c) -> c.dueAt));
+            dueQueue.clear();
+            spread(queued, System.currentTimeMillis(), intervalMillis);
+            dueQueue.addAll(queued);
+            size = queued.size();
+        }
+        log.info("数据拉取频率已变更为{}分钟，重新分布{}个实时天气同步网格", intervalMillis / 60_000, size);
+    }
 
-        for (Field field : fields) {
-            try {
-                WeatherRequestDTO request = new WeatherRequestDTO();
-                request.setLatitude(field.getLatitude());
-                request.setLongitude(field.getLongitude());
+    /**
+     * 刷新单个网格的实时天气，返回刷新完成的Future
+     */
+    private CompletableFuture<Void> refreshCell(DueCell cell) {
+        long startNanos = System.nanoTime();
+        WeatherRequestDTO request = new WeatherRequestDTO();
+        request.setLatitude(cell.key.getLatitude());
+        request.setLongitude(cell.key.getLongitude());
 
-                // 调用服务获取最新天气数据（该方法会自动保存到数据库）
-                weatherService.getCurrentWeather(request);
+        // 调用服务获取最新天气数据（该方法会自动保存到数据库）
+        CompletableFuture<WeatherCurrentDTO> future;
+        try {
+            // 定时同步使用后台额度，为交互请求保留调用余量
+            future = OpenWeatherMapRateLimiter.background(() -> weatherService.getCurrentWeatherAsync(request));
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future
+                .handle((data, e) -> {
+                    totalLatencyMillis.add((System.nanoTime() - startNanos) / 1_000_000);
+                    if (e != null) {
+                        failedRefreshes.increment();
+                        log.error("更新网格({})的实时天气数据失败", cell.key, FutureUtils.unwrap(e));
+                    } else {
+                        log.debug("成功更新网格({})的实时天气数据", cell.key);
+                    }
+                    return null;
+                });
+    }
 
-                log.info("成功更新地块[{}]({}, {})的实时天气数据",
-                         field.getName(), field.getLatitude(), field.getLongitude());
-            } catch (Exception e) {
-                log.error("更新地块[{}]({}, {})的实时天气数据失败",
-                         field.getName(), field.getLatitude(), field.getLongitude(), e);
+    private void requeue(DueCell cell) {
+        long now = System.currentTimeMillis();
+        long intervalMillis = intervalMillis();
+        synchronized (queueLock) {
+            if (scheduledCells.get(cell.key.getValue()) != cell) {
+                return; // 网格已无地块
+            }
+            // 保持网格在周期内的相位，落后时跳过错过的周期
+            long next = cell.dueAt + intervalMillis;
+            if (next <= now) {
+                next += ((now - next) / intervalMillis + 1) * intervalMillis;
             }
+            cell.dueAt = next;
+            dueQueue.add(cell);
+        }
+    }
+
+    /**
+     * 根据当前地块同步网格集合：新网格加入队列，已无地块的网格移出队列
+     * 首次加载时所有网格均匀分布在一个拉取周期内
+     */
+    private void reconcileCells(long now) {
+        lastReconcileMillis = now;
+        Set<CoordinateKey> keys = groupByGrid(fieldRepository.findAll()).keySet();
+        Set<Long> values = new HashSet<>();
+        for (CoordinateKey key : keys) {
+            values.add(key.getValue());
         }
 
-        log.info("实时天气数据同步完成，共同步{}个地块", fields.size());
+        synchronized (queueLock) {
+            boolean initial = scheduledCells.isEmpty();
+            scheduledCells.values().removeIf(cell -> {
+                if (values.contains(cell.key.getValue())) {
+                    return false;
+                }
+                dueQueue.remove(cell);
+                return true;
+            });
+
+            List<DueCell> added = new ArrayList<>();
+            for (CoordinateKey key : keys) {
+                if (!scheduledCells.containsKey(key.getValue())) {
+                    DueCell cell = new DueCell(key);
+                    cell.dueAt = now; // 新增地块尽快刷新
+                    scheduledCells.put(key.getValue(), cell);
+                    added.add(cell);
+                }
+            }
+            if (initial) {
+                spread(added, now, intervalMillis());
+            }
+            dueQueue.addAll(added);
+            if (!added.isEmpty()) {
+                log.info("实时天气同步新增{}个网格，当前共{}个网格", added.size(), scheduledCells.size());
+            }
+        }
+    }
+
+    /**
+     * 将网格按顺序均匀分布在[now, now + interval)内
+     */
+    private void spread(List<DueCell> cells, long now, long intervalMillis) {
+        int size = cells.size();
+        for (int i = 0; i < size; i++) {
+            cells.get(i).dueAt = now + intervalMillis * i / size;
+        }
+    }
+
+    private long intervalMillis() {
+        return Math.max(1, systemConfigService.getDataFetchInterval()) * 60_000L;
     }
 
     /**
@@ -97,34 +258,183 @@ public class WeatherDataSyncService implements SchedulingConfigurer {
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void syncForecastData() {
-        log.info("开始同步天气预报数据...");
+        runSync(forecastJob, forecastSyncExecutor, key -> {
+            WeatherRequestDTO request = new WeatherRequestDTO();
+            request.setLatitude(key.getLatitude());
+            request.setLongitude(key.getLongitude());
 
-        // 从数据库获取所有地块
-        List<Field> fields = fieldRepository.findAll();
+            // 调用WeatherService的getWeatherForecast方法获取预报数据
+            List<WeatherForecastDTO> forecastList = OpenWeatherMapRateLimiter.background(() -> weatherService.getWeatherForecast(request));
+            return forecastList != null ? forecastList.size() : 0;
+        });
+    }
 
-        if (fields.isEmpty()) {
-            log.warn("数据库中没有地块信息，无法同步天气预报数据");
+    /**
+     * 最近一次同步的统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parallelism", syncExecutor.getMaxPoolSize());
+        result.put("forecastParallelism", forecastSyncExecutor.getMaxPoolSize());
+        result.put("current", currentStats());
+        result.put("forecast", forecastJob.stats());
+        return result;
+    }
+
+    private Map<String, Object> currentStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        synchronized (queueLock) {
+            result.put("gridCells", scheduledCells.size());
+            result.put("queued", dueQueue.size());
+            result.put("inFlight", scheduledCells.size() - dueQueue.size());
+            result.put("nextDueAt", dueQueue.isEmpty() ? null : dueQueue.peek().dueAt);
+        }
+        long count = dispatched.sum();
+        result.put("intervalMinutes", systemConfigService.getDataFetchInterval());
+        result.put("dispatched", count);
+        result.put("failed", failedRefreshes.sum());
+        result.put("avgCellLatencyMillis", count == 0 ? 0 : totalLatencyMillis.sum() / count);
+        result.put("avgDispatchLagMillis", count == 0 ? 0 : totalLagMillis.sum() / count);
+        return result;
+    }
+
+    /**
+     * 执行一次同步：按网格去重后并发刷新，上一次同步未结束时跳过本次
+     *
+     * @param job      同步任务
+     * @param executor 执行各网格刷新的线程池
+     * @param task     单个网格的刷新逻辑，返回获取到的记录数
+     */
+    private void runSync(SyncJob job, ThreadPoolTaskExecutor executor, ToIntFunction<CoordinateKey> task) {
+        if (!job.running.compareAndSet(false, true)) {
+            job.skippedRuns.incrementAndGet();
+            log.warn("上一次{}数据同步尚未完成，跳过本次同步", job.name);
             return;
         }
+        try {
+            log.info("开始同步{}数据...", job.name);
+            LocalDateTime startedAt = LocalDateTime.now();
+            long startNanos = System.nanoTime();
 
-        for (Field field : fields) {
-            try {
-                WeatherRequestDTO request = new WeatherRequestDTO();
-                request.setLatitude(field.getLatitude());
-                request.setLongitude(field.getLongitude());
+            // 从数据库获取所有地块
+            List<Field> fields = fieldRepository.findAll();
 
-                // 调用WeatherService的getWeatherForecast方法获取预报数据
-                List<WeatherForecastDTO> forecastList = weatherService.getWeatherForecast(request);
+            if (fields.isEmpty()) {
+                log.warn("数据库中没有地块信息，无需同步{}数据", job.name);
+                return;
+            }
 
-                log.info("成功更新地块[{}]({}, {})的天气预报数据，获取到{}条预报记录",
-                         field.getName(), field.getLatitude(), field.getLongitude(),
-                         forecastList != null ? forecastList.size() : 0);
-            } catch (Exception e) {
-                log.error("更新地块[{}]({}, {})的天气预报数据失败",
-                         field.getName(), field.getLatitude(), field.getLongitude(), e);
+            // 同一网格内的地块只同步一次
+            Map<CoordinateKey, List<Field>> fieldsByKey = groupByGrid(fields);
+            if (fieldsByKey.isEmpty()) {
+                return;
+            }
+            List<CompletableFuture<Long>> futures = new ArrayList<>(fieldsByKey.size());
+            AtomicLong failed = new AtomicLong();
+            for (Map.Entry<CoordinateKey, List<Field>> entry : fieldsByKey.entrySet()) {
+                futures.add(CompletableFuture.supplyAsync(() -> syncCell(job, entry.getKey(), entry.getValue(), task, failed), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            long totalMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            long maxLatency = 0;
+            long sumLatency = 0;
+            for (CompletableFuture<Long> future : futures) {
+                long latency = future.join();
+                sumLatency += latency;
+                maxLatency = Math.max(maxLatency, latency);
+            }
+
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("startedAt", startedAt);
+            run.put("fields", fields.size());
+            run.put("gridCells", fieldsByKey.size());
+            run.put("failed", failed.get());
+            run.put("durationMillis", totalMillis);
+            run.put("fieldsPerSecond", totalMillis == 0 ? fields.size() : fields.size() * 1000L / totalMillis);
+            run.put("avgCellLatencyMillis", sumLatency / fieldsByKey.size());
+            run.put("maxCellLatencyMillis", maxLatency);
+            job.lastRun.set(run);
+
+            log.info("{}数据同步完成，共同步{}个地块，{}个网格，失败{}个，耗时{}ms，平均每网格{}ms",
+                    job.name, fields.size(), fieldsByKey.size(), failed.get(), totalMillis, sumLatency / fieldsByKey.size());
+        } finally {
+            job.running.set(false);
+        }
+    }
+
+    /**
+     * 刷新单个网格，返回耗时（毫秒）
+     */
+    private long syncCell(SyncJob job, CoordinateKey key, List<Field> fields, ToIntFunction<CoordinateKey> task, AtomicLong failed) {
+        long startNanos = System.nanoTime();
+        try {
+            int records = task.applyAsInt(key);
+            log.debug("成功更新网格({})的{}数据，覆盖{}个地块，获取到{}条记录", key, job.name, fields.size(), records);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("更新网格({})的{}数据失败，涉及地块: {}", key, job.name, fieldNames(fields), e);
+        }
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 按网格坐标键对地块分组，保持地块原有顺序
+     */
+    private Map<CoordinateKey, List<Field>> groupByGrid(List<Field> fields) {
+        Map<CoordinateKey, List<Field>> fieldsByKey = new LinkedHashMap<>();
+        for (Field field : fields) {
+            if (field.getLatitude() == null || field.getLongitude() == null) {
+                log.warn("地块[{}]缺少坐标，跳过同步", field.getName());
+                continue;
             }
+            CoordinateKey key = coordinateGrid.keyOf(field.getLatitude(), field.getLongitude());
+            fieldsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(field);
+        }
+        return fieldsByKey;
+    }
+
+    private List<String> fieldNames(List<Field> fields) {
+        List<String> names = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            names.add(field.getName());
         }
+        return names;
+    }
+
+    /**
+     * 实时天气调度队列中的网格
+     */
+    private static class DueCell {
 
-        log.info("天气预报数据同步完成，共同步{}个地块", fields.size());
+        private final CoordinateKey key;
+        private long dueAt;
+
+        private DueCell(CoordinateKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 同步任务状态：运行标记、跳过次数及最近一次运行统计
+     */
+    private static class SyncJob {
+
+        private final String name;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicLong skippedRuns = new AtomicLong();
+        private final AtomicReference<Map<String, Object>> lastRun = new AtomicReference<>();
+
+        private SyncJob(String name) {
+            this.name = name;
+        }
+
+        private Map<String, Object> stats() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("running", running.get());
+            result.put("skippedRuns", skippedRuns.get());
+            result.put("lastRun", lastRun.get());
+            return result;
+        }
     }
 }
@@ -0,0 +1,68 @@
+package org.agro.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.util.CoordinateKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 天气数据拉取统计
+ * 记录每个网格最近一次触发API调用的原始坐标，当其他坐标的请求命中该网格已有数据时，
+ * 视为按网格合并节省了一次API调用
+ */
+@Component
+public class WeatherFetchMetrics {
+
+    private final Cache<Long, String> fetchOrigins;
+    private final LongAdder apiCalls = new LongAdder();
+    private final LongAdder gridHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+
+    @Autowired
+    public WeatherFetchMetrics(OpenWeatherMapConfig weatherConfig) {
+        this.fetchOrigins = Caffeine.newBuilder()
+                .maximumSize(weatherConfig.getCurrentCacheMaxSize())
+                .build();
+    }
+
+    /**
+     * 记录一次对OpenWeatherMap的调用
+     */
+    public void recordFetch(CoordinateKey key) {
+        apiCalls.increment();
+        fetchOrigins.put(key.getValue(), key.getOrigin());
+    }
+
+    /**
+     * 记录一次由已有数据（缓存或数据库）满足的请求
+     */
+    public void recordHit(CoordinateKey key) {
+        gridHits.increment();
+        String origin = fetchOrigins.getIfPresent(key.getValue());
+        if (origin != null && !Objects.equals(origin, key.getOrigin())) {
+            sharedHits.increment();
+        }
+    }
+
+    /**
+     * 统计信息：API调用次数、命中次数、因网格合并节省的调用次数及节省比例
+     */
+    public Map<String, Object> stats() {
+        long calls = apiCalls.sum();
+        long saved = sharedHits.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("apiCalls", calls);
+        result.put("hits", gridHits.sum());
+        result.put("callsSavedByGrid", saved);
+        result.put("savedRatio", calls + saved == 0 ? 0.0 : (double) saved / (calls + saved));
+        result.put("gridCellsTracked", fetchOrigins.estimatedSize());
+        return result;
+    }
+}
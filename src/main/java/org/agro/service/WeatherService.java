@@ -6,6 +6,7 @@ import org.agro.dto.WeatherHistoricalDTO;
 import org.agro.dto.WeatherRequestDTO;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface WeatherService {
     
@@ -15,6 +16,20 @@ public interface WeatherService {
      * @return 实时天气数据
      */
     WeatherCurrentDTO getCurrentWeather(WeatherRequestDTO request);
+
+    /**
+     * 异步获取实时天气数据，等待上游API期间不占用调用线程
+     * @param request 请求参数
+     * @return 实时天气数据
+     */
+    CompletableFuture<WeatherCurrentDTO> getCurrentWeatherAsync(WeatherRequestDTO request);
+
+    /**
+     * 批量获取实时天气数据，缓存与数据库一次批量查询，仅对缺失或过期的坐标并发刷新
+     * @param requests 请求参数列表
+     * @return 实时天气数据列表，与请求顺序一致，无法获取数据的条目不包含在内
+     */
+    List<WeatherCurrentDTO> getCurrentWeatherBatch(List<WeatherRequestDTO> requests);
     
     /**
      * 获取天气预报数据
@@ -29,4 +44,11 @@ public interface WeatherService {
      * @return 历史天气数据列表
      */
     List<WeatherHistoricalDTO> getHistoricalWeather(WeatherRequestDTO request);
+
+    /**
+     * 补齐时间范围内缺失的历史天气数据（用于后台回填，不返回数据）
+     * @param request 请求参数
+     * @return 获取失败（调用额度不足、熔断、API错误等）的小时数，0表示范围内已全部获取
+     */
+    int backfillHistoricalWeather(WeatherRequestDTO request);
 } 
\ No newline at end of file
@@ -1,12 +1,14 @@
 package org.agro.service.impl;
 
 import org.agro.entity.Announcement;
+import org.agro.event.UserDataChangedEvent;
 import org.agro.repository.AnnouncementRepository;
 import org.agro.service.AnnouncementService;
 import org.agro.service.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -27,6 +29,9 @@ public class AnnouncementServiceImpl implements AnnouncementService {
     
     @Autowired
     private NotificationService notificationService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -40,6 +45,7 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         announcement.setExpireTime(expireTime);
         
         announcement = announcementRepository.save(announcement);
+        eventPublisher.publishEvent(new UserDataChangedEvent(null));
         
         return announcement;
     }
@@ -57,7 +63,10 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         announcement.setPublishTime(publishTime);
         announcement.setExpireTime(expireTime);
         
-        return announcementRepository.save(announcement);
+        announcement = announcementRepository.save(announcement);
+        eventPublisher.publishEvent(new UserDataChangedEvent(null));
+        
+        return announcement;
     }
 
     @Override
@@ -79,6 +88,7 @@ public class AnnouncementServiceImpl implements AnnouncementService {
         }
         
         announcement = announcementRepository.save(announcement);
+        eventPublisher.publishEvent(new UserDataChangedEvent(null));
         
         return announcement;
     }
@@ -88,6 +98,7 @@ public class AnnouncementServiceImpl implements AnnouncementService {
     public void deleteAnnouncement(Long id) {
         if (announcementRepository.existsById(id)) {
             announcementRepository.deleteById(id);
+            eventPublisher.publishEvent(new UserDataChangedEvent(null));
             logger.info("公告已删除: {}", id);
         } else {
             logger.warn("尝试删除不存在的公告: {}", id);
@@ -0,0 +1,148 @@
+package org.agro.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.agro.config.DashboardConfig;
+import org.agro.dto.DashboardDTO;
+import org.agro.dto.WeatherCurrentDTO;
+import org.agro.dto.WeatherRequestDTO;
+import org.agro.entity.Announcement;
+import org.agro.entity.Field;
+import org.agro.entity.FieldGroup;
+import org.agro.event.UserDataChangedEvent;
+import org.agro.service.AnnouncementService;
+import org.agro.service.DashboardService;
+import org.agro.service.FieldGroupService;
+import org.agro.service.FieldService;
+import org.agro.service.NotificationService;
+import org.agro.service.WeatherService;
+import org.agro.util.FutureUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 首页聚合数据服务实现类
+ * 各子查询在独立线程池中并发执行，地块实时天气在地块列表返回后批量获取；
+ * 聚合结果按用户短时缓存，地块、地块组、通知或公告变更后失效
+ */
+@Service
+public class DashboardServiceImpl implements DashboardService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardServiceImpl.class);
+
+    private final FieldService fieldService;
+    private final FieldGroupService fieldGroupService;
+    private final WeatherService weatherService;
+    private final NotificationService notificationService;
+    private final AnnouncementService announcementService;
+    private final ThreadPoolTaskExecutor dashboardExecutor;
+    private final Cache<Long, DashboardDTO> cache;
+
+    // 每次失效递增，聚合期间发生过失效的结果不写入缓存
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public DashboardServiceImpl(FieldService fieldService,
+                                FieldGroupService fieldGroupService,
+                                WeatherService weatherService,
+                                NotificationService notificationService,
+                                AnnouncementService announcementService,
+                                DashboardConfig dashboardConfig,
+                                @Qualifier("dashboardExecutor") ThreadPoolTaskExecutor dashboardExecutor) {
+        this.fieldService = fieldService;
+        this.fieldGroupService = fieldGroupService;
+        this.weatherService = weatherService;
+        this.notificationService = notificationService;
+        this.announcementService = announcementService;
+        this.dashboardExecutor = dashboardExecutor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(dashboardConfig.getCacheMaxSize())
+                .expireAfterWrite(dashboardConfig.getCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public DashboardDTO getDashboard(Long userId) {
+        DashboardDTO cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = invalidations.get();
+        DashboardDTO dashboard = loadDashboard(userId);
+        if (invalidations.get() == version) {
+            cache.put(userId, dashboard);
+        }
+        return dashboard;
+    }
+
+    /**
+     * 失效相关用户的聚合数据
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        invalidations.incrementAndGet();
+        if (event.getUserId() == null) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(event.getUserId());
+        }
+    }
+
+    private DashboardDTO loadDashboard(Long userId) {
+        CompletableFuture<List<Field>> fields = CompletableFuture.supplyAsync(
+                () -> fieldService.getFields(userId), dashboardExecutor);
+        CompletableFuture<List<WeatherCurrentDTO>> fieldWeather = fields.thenApplyAsync(
+                this::getFieldWeather, dashboardExecutor);
+        CompletableFuture<List<FieldGroup>> fieldGroups = CompletableFuture.supplyAsync(
+                () -> fieldGroupService.getFieldGroups(userId), dashboardExecutor);
+        CompletableFuture<Long> unreadCount = CompletableFuture.supplyAsync(
+                () -> notificationService.countUserUnreadNotifications(userId), dashboardExecutor);
+        CompletableFuture<List<Announcement>> announcements = CompletableFuture.supplyAsync(
+                announcementService::findActiveAnnouncements, dashboardExecutor);
+
+        DashboardDTO dashboard = new DashboardDTO();
+        dashboard.setFields(FutureUtils.join(fields));
+        dashboard.setFieldWeather(FutureUtils.join(fieldWeather));
+        dashboard.setFieldGroups(FutureUtils.join(fieldGroups));
+        dashboard.setUnreadNotificationCount(FutureUtils.join(unreadCount));
+        dashboard.setAnnouncements(FutureUtils.join(announcements));
+        dashboard.setGeneratedAt(LocalDateTime.now());
+        return dashboard;
+    }
+
+    /**
+     * 批量获取地块实时天气，天气服务不可用时返回空列表，不影响其余数据
+     */
+    private List<WeatherCurrentDTO> getFieldWeather(List<Field> fields) {
+        if (fields.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<WeatherRequestDTO> requests = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            WeatherRequestDTO request = new WeatherRequestDTO();
+            request.setFieldId(field.getId());
+            request.setLatitude(field.getLatitude());
+            request.setLongitude(field.getLongitude());
+            requests.add(request);
+        }
+        try {
+            return weatherService.getCurrentWeatherBatch(requests);
+        } catch (RuntimeException e) {
+            logger.warn("获取地块实时天气失败: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+}
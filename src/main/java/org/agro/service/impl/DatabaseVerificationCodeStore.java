@@ -0,0 +1,91 @@
+package org.agro.service.impl;
+
+import org.agro.repository.VerificationCodeRepository;
+import org.agro.service.VerificationCodeStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 数据库验证码存储
+ * 验证码和发送限制保存在verification_code表中，多个节点共享；
+ * 发送限制通过条件更新和主键冲突保证同一邮箱同一时间只有一个节点能占用发送机会；
+ * 使用验证码同样是条件更新，同一验证码在多个节点并发使用时只有一个成功
+ */
+@Service
+@ConditionalOnProperty(name = "verification.code.store", havingValue = "database")
+public class DatabaseVerificationCodeStore implements VerificationCodeStore {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseVerificationCodeStore.class);
+
+    private static final long PRUNE_INTERVAL_MILLIS = 10 * 60_000L;
+
+    private final VerificationCodeRepository verificationCodeRepository;
+
+    @Autowired
+    public DatabaseVerificationCodeStore(VerificationCodeRepository verificationCodeRepository) {
+        this.verificationCodeRepository = verificationCodeRepository;
+    }
+
+    @Override
+    public void save(String email, String code, Duration ttl) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        if (verificationCodeRepository.updateCode(email, code, expiresAt) > 0) {
+            return;
+        }
+        try {
+            verificationCodeRepository.insertCode(email, code, expiresAt);
+        } catch (DataIntegrityViolationException e) {
+            // 其他节点刚插入了记录，改为更新
+            verificationCodeRepository.updateCode(email, code, expiresAt);
+        }
+    }
+
+    @Override
+    public boolean consume(String email, String code, int maxAttempts) {
+        LocalDateTime now = LocalDateTime.now();
+        if (verificationCodeRepository.consumeCode(email, code, now) > 0) {
+            return true;
+        }
+        if (verificationCodeRepository.recordFailedAttempt(email, now) > 0) {
+            verificationCodeRepository.clearCodeAfterFailures(email, maxAttempts);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryAcquireSend(String email, Duration interval) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.plus(interval);
+        if (verificationCodeRepository.claimSend(email, next, now) > 0) {
+            return true;
+        }
+        if (verificationCodeRepository.existsById(email)) {
+            return false;
+        }
+        try {
+            verificationCodeRepository.insertSend(email, next);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // 其他节点同时占用了发送机会
+            return false;
+        }
+    }
+
+    /**
+     * 定时清理已过期的验证码记录
+     */
+    @Scheduled(fixedDelay = PRUNE_INTERVAL_MILLIS, initialDelay = PRUNE_INTERVAL_MILLIS)
+    public void pruneExpired() {
+        int removed = verificationCodeRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            logger.info("已清理{}条过期的验证码记录", removed);
+        }
+    }
+}
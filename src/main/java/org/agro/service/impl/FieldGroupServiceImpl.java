@@ -2,11 +2,14 @@ package org.agro.service.impl;
 
 import org.agro.dto.FieldGroupDTO;
 import org.agro.entity.FieldGroup;
+import org.agro.event.UserDataChangedEvent;
 import org.agro.exception.ResourceNotFoundException;
 import org.agro.repository.FieldGroupRepository;
 import org.agro.repository.FieldRepository;
+import org.agro.service.FieldCache;
 import org.agro.service.FieldGroupService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +27,12 @@ public class FieldGroupServiceImpl implements FieldGroupService {
     
     @Autowired
     private FieldRepository fieldRepository;
+    
+    @Autowired
+    private FieldCache fieldCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public FieldGroup createFieldGroup(Long userId, FieldGroupDTO fieldGroupDTO) {
@@ -32,7 +41,9 @@ public class FieldGroupServiceImpl implements FieldGroupService {
         fieldGroup.setName(fieldGroupDTO.getName());
         fieldGroup.setDescription(fieldGroupDTO.getDescription());
         
-        return fieldGroupRepository.save(fieldGroup);
+        FieldGroup saved = fieldGroupRepository.save(fieldGroup);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
+        return saved;
     }
 
     @Override
@@ -49,7 +60,9 @@ public class FieldGroupServiceImpl implements FieldGroupService {
         existingFieldGroup.setDescription(fieldGroupDTO.getDescription());
         existingFieldGroup.setUpdatedAt(LocalDateTime.now());
         
-        return fieldGroupRepository.save(existingFieldGroup);
+        FieldGroup saved = fieldGroupRepository.save(existingFieldGroup);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
+        return saved;
     }
 
     @Override
@@ -67,10 +80,12 @@ public class FieldGroupServiceImpl implements FieldGroupService {
         fieldRepository.findByGroupId(id).forEach(field -> {
             field.setGroupId(null);
             fieldRepository.save(field);
+            fieldCache.evict(field.getId());
         });
         
         // 删除地块组
         fieldGroupRepository.delete(fieldGroup);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
     }
 
     @Override
@@ -3,15 +3,23 @@ package org.agro.service.impl;
 import org.agro.dto.FieldDTO;
 import org.agro.entity.Field;
 import org.agro.entity.FieldGroup;
+import org.agro.event.UserDataChangedEvent;
 import org.agro.exception.ResourceNotFoundException;
 import org.agro.repository.FieldGroupRepository;
 import org.agro.repository.FieldRepository;
+import org.agro.service.FieldCache;
 import org.agro.service.FieldService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 地块服务实现类
@@ -24,6 +32,12 @@ public class FieldServiceImpl implements FieldService {
     
     @Autowired
     private FieldGroupRepository fieldGroupRepository;
+    
+    @Autowired
+    private FieldCache fieldCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public Field createField(Long userId, FieldDTO fieldDTO) {
@@ -50,7 +64,9 @@ public class FieldServiceImpl implements FieldService {
         field.setLatitude(fieldDTO.getLatitude());
         field.setLongitude(fieldDTO.getLongitude());
         
-        return fieldRepository.save(field);
+        Field saved = fieldRepository.save(field);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
+        return saved;
     }
 
     @Override
@@ -86,7 +102,10 @@ public class FieldServiceImpl implements FieldService {
         existingField.setLongitude(fieldDTO.getLongitude());
         existingField.setUpdatedAt(LocalDateTime.now());
         
-        return fieldRepository.save(existingField);
+        Field saved = fieldRepository.save(existingField);
+        fieldCache.evict(id);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
+        return saved;
     }
 
     @Override
@@ -100,6 +119,8 @@ public class FieldServiceImpl implements FieldService {
         }
         
         fieldRepository.delete(field);
+        fieldCache.evict(id);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
     }
 
     @Override
@@ -123,7 +144,7 @@ public class FieldServiceImpl implements FieldService {
 
     @Override
     public Field getField(Long userId, Long id) {
-        Field field = fieldRepository.findById(id)
+        Field field = fieldCache.get(id, fieldRepository::findById)
                 .orElseThrow(() -> new ResourceNotFoundException("地块不存在"));
                 
         // 验证所有权
@@ -133,4 +154,23 @@ public class FieldServiceImpl implements FieldService {
         
         return field;
     }
+
+    @Override
+    public List<Field> getFieldsByIds(Long userId, Collection<Long> ids) {
+        Map<Long, Field> fields = new HashMap<>();
+        for (Field field : fieldRepository.findAllById(new LinkedHashSet<>(ids))) {
+            fields.put(field.getId(), field);
+        }
+        
+        List<Field> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Field field = fields.get(id);
+            // 验证存在性和所有权
+            if (field == null || !field.getUserId().equals(userId)) {
+                throw new ResourceNotFoundException("地块不存在");
+            }
+            result.add(field);
+        }
+        return result;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,114 @@
+package org.agro.service.impl;
+
+import org.agro.service.VerificationCodeStore;
+import org.agro.util.TimerWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存验证码存储
+ * 验证码和发送时间保存在并发Map中，到期后由时间轮移除；读取时同样检查过期时间，
+ * 时间轮只负责回收内存。仅适用于单节点部署
+ */
+@Service
+@ConditionalOnProperty(name = "verification.code.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryVerificationCodeStore implements VerificationCodeStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryVerificationCodeStore.class);
+
+    private static final int WHEEL_BUCKETS = 512;
+    private static final long TICK_MILLIS = 1000;
+
+    private final Map<String, CodeEntry> codes = new ConcurrentHashMap<>();
+    // 各邮箱允许再次发送的时间
+    private final Map<String, Long> nextSendAt = new ConcurrentHashMap<>();
+    private final TimerWheel wheel = new TimerWheel(WHEEL_BUCKETS, TICK_MILLIS);
+    private final ScheduledExecutorService wheelTimer;
+
+    public InMemoryVerificationCodeStore() {
+        this.wheelTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verification-code-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        wheelTimer.scheduleAtFixedRate(this::expire, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheelTimer.shutdownNow();
+    }
+
+    @Override
+    public void save(String email, String code, Duration ttl) {
+        CodeEntry entry = new CodeEntry(code, System.currentTimeMillis() + ttl.toMillis());
+        codes.put(email, entry);
+        // 只移除本次保存的验证码，之后重新保存的由各自的定时任务处理
+        wheel.schedule(entry.expiresAt, () -> codes.remove(email, entry));
+    }
+
+    @Override
+    public boolean consume(String email, String code, int maxAttempts) {
+        long now = System.currentTimeMillis();
+        boolean[] matched = new boolean[1];
+        // 比较和删除在同一次compute中完成，并发使用同一验证码时只有一个成功
+        codes.computeIfPresent(email, (key, entry) -> {
+            if (entry.expiresAt <= now) {
+                return null;
+            }
+            if (entry.code.equals(code)) {
+                matched[0] = true;
+                return null;
+            }
+            entry.failedAttempts++;
+            return entry.failedAttempts >= maxAttempts ? null : entry;
+        });
+        return matched[0];
+    }
+
+    @Override
+    public boolean tryAcquireSend(String email, Duration interval) {
+        long now = System.currentTimeMillis();
+        long next = now + interval.toMillis();
+        boolean[] acquired = new boolean[1];
+        nextSendAt.compute(email, (key, current) -> {
+            if (current != null && current > now) {
+                return current;
+            }
+            acquired[0] = true;
+            return next;
+        });
+        if (acquired[0]) {
+            wheel.schedule(next, () -> nextSendAt.remove(email, next));
+        }
+        return acquired[0];
+    }
+
+    private void expire() {
+        try {
+            wheel.advance(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logger.error("清理过期验证码失败", e);
+        }
+    }
+
+    private static class CodeEntry {
+        private final String code;
+        private final long expiresAt;
+        private int failedAttempts; // 仅在compute中修改
+
+        private CodeEntry(String code, long expiresAt) {
+            this.code = code;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.agro.service.impl;
 import org.agro.entity.Notification;
 import org.agro.entity.NotificationSetting;
 import org.agro.entity.User;
+import org.agro.event.UserDataChangedEvent;
 import org.agro.repository.NotificationRepository;
 import org.agro.repository.NotificationSettingRepository;
 import org.agro.repository.UserRepository;
@@ -11,6 +12,7 @@ import org.agro.service.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageImpl;
@@ -42,6 +44,9 @@ public class NotificationServiceImpl implements NotificationService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional
     public Notification createNotification(Long userId, String title, String content) {
@@ -54,7 +59,9 @@ public class NotificationServiceImpl implements NotificationService {
         notification.setContent(content);
         notification.setIsRead(false);
 
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
+        return saved;
     }
 
     @Override
@@ -128,6 +135,7 @@ public class NotificationServiceImpl implements NotificationService {
             Notification notification = notificationOpt.get();
             notification.setIsRead(true);
             notificationRepository.save(notification);
+            eventPublisher.publishEvent(new UserDataChangedEvent(notification.getUser().getId()));
             return true;
         }
         
@@ -148,14 +156,18 @@ public class NotificationServiceImpl implements NotificationService {
         }
         
         notificationRepository.saveAll(unreadNotifications);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId));
         return unreadNotifications.size();
     }
 
     @Override
     @Transactional
     public boolean deleteNotification(Long notificationId) {
-        if (notificationRepository.existsById(notificationId)) {
-            notificationRepository.deleteById(notificationId);
+        Optional<Notification> notificationOpt = notificationRepository.findById(notificationId);
+        
+        if (notificationOpt.isPresent()) {
+            notificationRepository.delete(notificationOpt.get());
+            eventPublisher.publishEvent(new UserDataChangedEvent(notificationOpt.get().getUser().getId()));
             return true;
         }
         
@@ -1,21 +1,35 @@
 package org.agro.service.impl;
 
 import org.agro.entity.SystemConfig;
+import org.agro.event.SystemConfigChangedEvent;
 import org.agro.repository.SystemConfigRepository;
 import org.agro.service.SystemConfigService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * 系统配置服务实现类
+ * 全部配置一次读入内存快照并预先解析常用的类型化配置，读取配置不访问数据库；
+ * 配置保存或删除的事务提交后快照失效，下次读取时重新加载；
+ * 另定时重新加载，发现直接修改数据库等途径产生的变化时同样发布配置变更事件
  */
 @Service
 public class SystemConfigServiceImpl implements SystemConfigService {
@@ -25,14 +39,25 @@ public class SystemConfigServiceImpl implements SystemConfigService {
     private static final String API_KEY_CONFIG = "openweathermap.api.key";
     
     // 默认数据拉取频率配置键（分钟）
-    private static final String FETCH_INTERVAL_CONFIG = "data.fetch.interval";
+    private static final String FETCH_INTERVAL_CONFIG = DATA_FETCH_INTERVAL_KEY;
     
     // 邮件配置键前缀
     private static final String EMAIL_CONFIG_PREFIX = "mail.";
 
+    // 定时重新加载配置快照的间隔
+    private static final long RELOAD_INTERVAL_MILLIS = 60_000L;
+
+    private volatile Snapshot snapshot;
+
+    // 每次失效递增，加载期间发生过失效的快照不保存，由this保护
+    private long generation;
+
     @Autowired
     private SystemConfigRepository systemConfigRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional
     public SystemConfig saveConfig(String key, String value, String description) {
@@ -49,14 +74,15 @@ public class SystemConfigServiceImpl implements SystemConfigService {
             config.setDescription(description);
         }
         
-        return systemConfigRepository.save(config);
+        SystemConfig saved = systemConfigRepository.save(config);
+        invalidate();
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(key, value));
+        return saved;
     }
 
     @Override
     public String getConfigValue(String key) {
-        return systemConfigRepository.findByConfigKey(key)
-                .map(SystemConfig::getConfigValue)
-                .orElse(null);
+        return snapshot().values.get(key);
     }
 
     @Override
@@ -71,6 +97,8 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         
         if (config != null) {
             systemConfigRepository.delete(config);
+            invalidate();
+            eventPublisher.publishEvent(new SystemConfigChangedEvent(key, null));
             logger.info("配置已删除: {}", key);
         } else {
             logger.warn("尝试删除不存在的配置: {}", key);
@@ -92,7 +120,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
 
     @Override
     public String getApiKey() {
-        return getConfigValue(API_KEY_CONFIG);
+        return snapshot().apiKey;
     }
 
     @Override
@@ -103,18 +131,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
 
     @Override
     public int getDataFetchInterval() {
-        String value = getConfigValue(FETCH_INTERVAL_CONFIG);
-        
-        if (value == null || value.isEmpty()) {
-            return 30; // 默认30分钟
-        }
-        
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            logger.error("无效的数据拉取频率配置: {}", value);
-            return 30; // 默认30分钟
-        }
+        return snapshot().dataFetchInterval;
     }
 
     @Override
@@ -127,21 +144,19 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         saveConfig(FETCH_INTERVAL_CONFIG, String.valueOf(minutes), "数据拉取频率（分钟）");
     }
 
+    @Override
+    public int getApiRateLimitPerMinute() {
+        return snapshot().apiRateLimitPerMinute;
+    }
+
+    @Override
+    public int getApiDailyQuota() {
+        return snapshot().apiDailyQuota;
+    }
+
     @Override
     public Map<String, String> getEmailConfig() {
-        Map<String, String> emailConfig = new HashMap<>();
-        
-        // 获取所有邮件相关配置
-        systemConfigRepository.findAll().forEach(config -> {
-            if (config.getConfigKey().startsWith(EMAIL_CONFIG_PREFIX)) {
-                emailConfig.put(
-                    config.getConfigKey().substring(EMAIL_CONFIG_PREFIX.length()),
-                    config.getConfigValue()
-                );
-            }
-        });
-        
-        return emailConfig;
+        return new HashMap<>(snapshot().emailConfig);
     }
 
     @Override
@@ -154,4 +169,128 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         saveConfig(EMAIL_CONFIG_PREFIX + "auth", String.valueOf(auth), "是否需要认证");
         saveConfig(EMAIL_CONFIG_PREFIX + "starttls", String.valueOf(startTls), "是否启用STARTTLS");
     }
-} 
\ No newline at end of file
+
+    /**
+     * 配置变更事务提交后使快照失效
+     * 优先于其他监听器执行，保证其他监听器读取到的是新配置
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSystemConfigChanged(SystemConfigChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * 定时重新加载配置，发布未经本服务修改的配置变化
+     */
+    @Scheduled(fixedDelay = RELOAD_INTERVAL_MILLIS, initialDelay = RELOAD_INTERVAL_MILLIS)
+    public void reloadConfigs() {
+        Snapshot previous = snapshot;
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        Snapshot loaded = load();
+        synchronized (this) {
+            if (generation != loadGeneration) {
+                return; // 加载期间配置已通过本服务修改
+            }
+            snapshot = loaded;
+        }
+        if (previous == null) {
+            return;
+        }
+
+        Set<String> keys = new HashSet<>(previous.values.keySet());
+        keys.addAll(loaded.values.keySet());
+        for (String key : keys) {
+            String value = loaded.values.get(key);
+            if (!Objects.equals(previous.values.get(key), value)) {
+                logger.info("检测到配置变化: {}", key);
+                eventPublisher.publishEvent(new SystemConfigChangedEvent(key, value));
+            }
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        Snapshot loaded = load();
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    private Snapshot load() {
+        List<SystemConfig> configs = systemConfigRepository.findAll();
+        Map<String, String> values = new HashMap<>();
+        for (SystemConfig config : configs) {
+            values.put(config.getConfigKey(), config.getConfigValue());
+        }
+        return new Snapshot(values);
+    }
+
+    private static int parseInt(Map<String, String> values, String key, int defaultValue) {
+        String value = values.get(key);
+
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.error("无效的配置值: {}={}", key, value);
+            return defaultValue;
+        }
+    }
+
+    private static int parsePositiveInt(Map<String, String> values, String key, int defaultValue) {
+        int parsed = parseInt(values, key, defaultValue);
+        return parsed > 0 ? parsed : defaultValue;
+    }
+
+    /**
+     * 配置快照：全部配置值及解析后的常用配置
+     */
+    private static final class Snapshot {
+
+        private final Map<String, String> values;
+        private final String apiKey;
+        private final int dataFetchInterval;
+        private final int apiRateLimitPerMinute;
+        private final int apiDailyQuota;
+        private final Map<String, String> emailConfig;
+
+        private Snapshot(Map<String, String> values) {
+            this.values = Collections.unmodifiableMap(values);
+            this.apiKey = values.get(API_KEY_CONFIG);
+            this.dataFetchInterval = parseInt(values, FETCH_INTERVAL_CONFIG, 30); // 默认30分钟
+            this.apiRateLimitPerMinute = parsePositiveInt(values, API_RATE_LIMIT_PER_MINUTE_KEY, 60); // 默认每分钟60次
+            this.apiDailyQuota = parsePositiveInt(values, API_DAILY_QUOTA_KEY, 30000); // 默认每天30000次
+
+            // 邮件相关配置，键去掉前缀
+            Map<String, String> email = new HashMap<>();
+            values.forEach((key, value) -> {
+                if (key.startsWith(EMAIL_CONFIG_PREFIX)) {
+                    email.put(key.substring(EMAIL_CONFIG_PREFIX.length()), value);
+                }
+            });
+            this.emailConfig = Collections.unmodifiableMap(email);
+        }
+    }
+}
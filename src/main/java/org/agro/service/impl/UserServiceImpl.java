@@ -1,8 +1,10 @@
 package org.agro.service.impl;
 
+import org.agro.config.VerificationCodeConfig;
 import org.agro.dto.*;
 import org.agro.entity.NotificationSetting;
 import org.agro.entity.User;
+import org.agro.event.UserDataChangedEvent;
 import org.agro.repository.FieldGroupRepository;
 import org.agro.repository.FieldRepository;
 import org.agro.repository.NotificationRepository;
@@ -10,11 +12,15 @@ import org.agro.repository.NotificationSettingRepository;
 import org.agro.repository.UserRepository;
 import org.agro.security.JwtUtils;
 import org.agro.security.UserDetailsImpl;
+import org.agro.security.UserPrincipalCache;
 import org.agro.service.EmailService;
+import org.agro.service.FieldCache;
 import org.agro.service.UserService;
+import org.agro.service.VerificationCodeStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -24,8 +30,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 
@@ -36,9 +40,6 @@ import java.util.Random;
 public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
-    // 用于存储密码重置验证码
-    private final Map<String, String> passwordResetCodes = new HashMap<>();
-
     @Autowired
     private UserRepository userRepository;
 
@@ -54,6 +55,15 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private FieldGroupRepository fieldGroupRepository;
 
+    @Autowired
+    private FieldCache fieldCache;
+
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
@@ -63,6 +73,12 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private VerificationCodeStore verificationCodeStore;
+
+    @Autowired
+    private VerificationCodeConfig verificationCodeConfig;
+
     @Override
     @Transactional
     public User registerUser(String username, String password, String email, String nickname, String phone) {
@@ -166,6 +182,7 @@ public class UserServiceImpl implements UserService {
             user.setPhone(updateRequest.getPhone());
         }
 
+        userPrincipalCache.evictUser(userId);
         return userRepository.save(user);
     }
 
@@ -174,6 +191,7 @@ public class UserServiceImpl implements UserService {
     public User updateAvatar(Long userId, String avatarUrl) {
         User user = findById(userId);
         user.setAvatar(avatarUrl);
+        userPrincipalCache.evictUser(userId);
         return userRepository.save(user);
     }
 
@@ -190,12 +208,16 @@ public class UserServiceImpl implements UserService {
         // 更新密码，直接存储明文密码
         user.setPassword(passwordChangeRequest.getNewPassword());
         userRepository.save(user);
+        userPrincipalCache.evictUser(userId);
 
         return true;
     }
 
     @Override
     public void sendPasswordResetCode(String email) {
+        // 先按邮箱限制发送频率，无论邮箱是否存在，避免借此探测已注册邮箱
+        acquireSend(email);
+
         // 验证邮箱是否存在
         Optional<User> optionalUser = userRepository.findByEmail(email);
         if (optionalUser.isEmpty()) {
@@ -204,14 +226,7 @@ public class UserServiceImpl implements UserService {
             return;
         }
 
-        // 生成6位数字验证码
-        String verificationCode = generateVerificationCode();
-
-        // 存储验证码 (实际应用中应该使用Redis等存储，并设置过期时间)
-        passwordResetCodes.put(email, verificationCode);
-
-        // 发送验证码到邮箱
-        emailService.sendPasswordResetVerificationCode(email, verificationCode);
+        sendVerificationCode(email);
     }
 
     @Override
@@ -234,14 +249,9 @@ public class UserServiceImpl implements UserService {
             return false;
         }
 
-        // 生成6位数字验证码
-        String verificationCode = generateVerificationCode();
+        acquireSend(email);
 
-        // 存储验证码 (实际应用中应该使用Redis等存储，并设置过期时间)
-        passwordResetCodes.put(email, verificationCode);
-
-        // 发送验证码到邮箱
-        emailService.sendPasswordResetVerificationCode(email, verificationCode);
+        sendVerificationCode(email);
 
         return true;
     }
@@ -252,9 +262,8 @@ public class UserServiceImpl implements UserService {
         String email = passwordResetRequest.getEmail();
         String verificationCode = passwordResetRequest.getVerificationCode();
 
-        // 验证验证码
-        String storedCode = passwordResetCodes.get(email);
-        if (storedCode == null || !storedCode.equals(verificationCode)) {
+        // 验证并使用验证码，同一验证码只能使用一次
+        if (!verificationCodeStore.consume(email, verificationCode, verificationCodeConfig.getMaxAttempts())) {
             return false;
         }
 
@@ -265,9 +274,7 @@ public class UserServiceImpl implements UserService {
         // 直接存储明文密码
         user.setPassword(passwordResetRequest.getNewPassword());
         userRepository.save(user);
-
-        // 删除已使用的验证码
-        passwordResetCodes.remove(email);
+        userPrincipalCache.evictUser(user.getId());
 
         return true;
     }
@@ -280,6 +287,7 @@ public class UserServiceImpl implements UserService {
         // 切换用户状态
         user.setStatus(!user.getStatus());
         userRepository.save(user);
+        userPrincipalCache.evictUser(userId);
 
         return true;
     }
@@ -301,12 +309,15 @@ public class UserServiceImpl implements UserService {
             
             // 删除用户的地块数据
             fieldRepository.deleteByUserId(userId);
+            fieldCache.evictAll();
             
             // 删除用户的地块组数据
             fieldGroupRepository.deleteByUserId(userId);
             
             // 最后删除用户
             userRepository.deleteById(userId);
+            userPrincipalCache.evictUser(userId);
+            eventPublisher.publishEvent(new UserDataChangedEvent(userId));
             return true;
         } catch (Exception e) {
             logger.error("删除用户时发生错误: {}", e.getMessage(), e);
@@ -319,6 +330,29 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll(pageable);
     }
 
+    /**
+     * 占用邮箱的一次发送机会，距上次发送不足间隔时拒绝
+     */
+    private void acquireSend(String email) {
+        if (!verificationCodeStore.tryAcquireSend(email, verificationCodeConfig.getSendInterval())) {
+            throw new RuntimeException("验证码发送过于频繁，请稍后再试");
+        }
+    }
+
+    /**
+     * 生成并保存验证码，发送到邮箱
+     */
+    private void sendVerificationCode(String email) {
+        // 生成6位数字验证码
+        String verificationCode = generateVerificationCode();
+
+        // 存储验证码，过期后自动失效
+        verificationCodeStore.save(email, verificationCode, verificationCodeConfig.getTtl());
+
+        // 发送验证码到邮箱
+        emailService.sendPasswordResetVerificationCode(email, verificationCode);
+    }
+
     /**
      * 生成6位数字验证码
      */
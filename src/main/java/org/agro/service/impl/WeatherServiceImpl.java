@@ -2,6 +2,8 @@ package org.agro.service.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.agro.config.OpenWeatherMapConfig;
 import org.agro.dto.WeatherCurrentDTO;
@@ -9,20 +11,38 @@ import org.agro.dto.WeatherForecastDTO;
 import org.agro.dto.WeatherHistoricalDTO;
 import org.agro.dto.WeatherRequestDTO;
 import org.agro.entity.WeatherCurrent;
+import org.agro.entity.WeatherCurrentLatest;
 import org.agro.entity.WeatherForecast;
 import org.agro.entity.WeatherHistorical;
+import org.agro.entity.WeatherHistoricalCoverage;
+import org.agro.event.WeatherCircuitStateChangedEvent;
+import org.agro.repository.WeatherCurrentLatestRepository;
 import org.agro.repository.WeatherCurrentRepository;
 import org.agro.repository.WeatherForecastRepository;
+import org.agro.repository.WeatherHistoricalCoverageRepository;
 import org.agro.repository.WeatherHistoricalRepository;
+import org.agro.repository.WeatherUpsertRepository;
+import org.agro.service.OpenWeatherMapClient;
+import org.agro.service.OpenWeatherMapRateLimiter;
 import org.agro.service.SystemConfigService;
+import org.agro.service.WeatherCurrentCache;
+import org.agro.service.WeatherFetchMetrics;
 import org.agro.service.WeatherService;
-import org.hibernate.exception.ConstraintViolationException;
+import org.agro.util.CircuitBreaker;
+import org.agro.util.CoordinateGrid;
+import org.agro.util.CoordinateKey;
+import org.agro.util.ForecastGapDetector;
+import org.agro.util.FutureUtils;
+import org.agro.util.HourlyCoverage;
+import org.agro.util.RangeReservations;
+import org.agro.util.SingleFlight;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
@@ -31,37 +51,100 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class WeatherServiceImpl implements WeatherService {
 
-    private final RestTemplate restTemplate;
+    private final OpenWeatherMapClient weatherApiClient;
     private final ObjectMapper objectMapper;
     private final OpenWeatherMapConfig weatherConfig;
     private final WeatherCurrentRepository currentRepository;
+    private final WeatherCurrentLatestRepository currentLatestRepository;
     private final WeatherForecastRepository forecastRepository;
     private final WeatherHistoricalRepository historicalRepository;
+    private final WeatherHistoricalCoverageRepository coverageRepository;
+    private final WeatherUpsertRepository upsertRepository;
     private final SystemConfigService systemConfigService;
+    private final WeatherCurrentCache currentCache;
+    private final CoordinateGrid coordinateGrid;
+    private final WeatherFetchMetrics fetchMetrics;
+    private final ThreadPoolTaskExecutor refreshExecutor;
+    private final ThreadPoolTaskExecutor forecastExecutor;
+    // 拼接后的预报结果，键为 网格键:单位:语言:开始小时:结束小时
+    private final Cache<String, List<WeatherForecastDTO>> forecastCache;
+    private final SingleFlight<Long, WeatherCurrent> currentWeatherFetches = new SingleFlight<>();
+    // 进行中的历史数据获取（按小时编号）和预报获取（按预报时段编号），重叠的请求等待同一结果
+    private final RangeReservations<Long, List<WeatherHistorical>> historicalFetches = new RangeReservations<>();
+    private final RangeReservations<String, List<WeatherForecast>> forecastFetches = new RangeReservations<>();
+    // 熔断期间返回了已存储数据、待熔断恢复后在后台刷新的网格
+    private final Map<Long, WeatherRequestDTO> pendingRevalidations = new ConcurrentHashMap<>();
+    // 熔断器半开时是否已有试探刷新在进行
+    private final AtomicBoolean probing = new AtomicBoolean();
 
     private static final DateTimeFormatter dtFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // 各预报API的粒度及从当前时段起可返回的时段数
+    private static final ForecastTier HOURLY_TIER = new ForecastTier(
+            WeatherForecast.TYPE_HOURLY, ForecastGapDetector.Granularity.HOURLY, 96, "hourly");
+    private static final ForecastTier DAILY_TIER = new ForecastTier(
+            WeatherForecast.TYPE_DAILY_16, ForecastGapDetector.Granularity.DAILY, 16, "16天 daily");
+    private static final ForecastTier CLIMATE_TIER = new ForecastTier(
+            WeatherForecast.TYPE_CLIMATE_30, ForecastGapDetector.Granularity.DAILY, 30, "30天 climate");
+
+    private final ForecastGapDetector gapDetector = new ForecastGapDetector(ZoneId.systemDefault());
+    // 正在后台刷新的预报（网格键:预报类型）
+    private final Set<String> pendingForecastRefreshes = ConcurrentHashMap.newKeySet();
+
     @Autowired
-    public WeatherServiceImpl(RestTemplate restTemplate,
+    public WeatherServiceImpl(OpenWeatherMapClient weatherApiClient,
                              OpenWeatherMapConfig weatherConfig,
                              WeatherCurrentRepository currentRepository,
+                             WeatherCurrentLatestRepository currentLatestRepository,
                              WeatherForecastRepository forecastRepository,
                              WeatherHistoricalRepository historicalRepository,
-                             SystemConfigService systemConfigService) {
-        this.restTemplate = restTemplate;
+                             WeatherHistoricalCoverageRepository coverageRepository,
+                             WeatherUpsertRepository upsertRepository,
+                             SystemConfigService systemConfigService,
+                             WeatherCurrentCache currentCache,
+                             CoordinateGrid coordinateGrid,
+                             WeatherFetchMetrics fetchMetrics,
+                             @Qualifier("weatherRefreshExecutor") ThreadPoolTaskExecutor refreshExecutor,
+                             @Qualifier("weatherForecastExecutor") ThreadPoolTaskExecutor forecastExecutor) {
+        this.weatherApiClient = weatherApiClient;
         this.weatherConfig = weatherConfig;
         this.currentRepository = currentRepository;
+        this.currentLatestRepository = currentLatestRepository;
         this.forecastRepository = forecastRepository;
         this.historicalRepository = historicalRepository;
+        this.coverageRepository = coverageRepository;
+        this.upsertRepository = upsertRepository;
         this.systemConfigService = systemConfigService;
+        this.currentCache = currentCache;
+        this.coordinateGrid = coordinateGrid;
+        this.fetchMetrics = fetchMetrics;
+        this.refreshExecutor = refreshExecutor;
+        this.forecastExecutor = forecastExecutor;
+        this.forecastCache = Caffeine.newBuilder()
+                .maximumSize(weatherConfig.getForecastCacheMaxSize())
+                .expireAfterWrite(weatherConfig.getForecastCacheSeconds(), TimeUnit.SECONDS)
+                .build();
         this.objectMapper = new ObjectMapper();
     }
 
@@ -74,16 +157,132 @@ public class WeatherServiceImpl implements WeatherService {
 
     @Override
     public WeatherCurrentDTO getCurrentWeather(WeatherRequestDTO request) {
-        BigDecimal latitude = request.getLatitude();
-        BigDecimal longitude = request.getLongitude();
+        return FutureUtils.join(getCurrentWeatherAsync(request));
+    }
+
+    @Override
+    public CompletableFuture<WeatherCurrentDTO> getCurrentWeatherAsync(WeatherRequestDTO request) {
+        // 坐标对齐到网格，同一网格内的地块共享拉取和存储
+        CoordinateKey key = coordinateGrid.keyOf(request.getLatitude(), request.getLongitude());
+        BigDecimal latitude = key.getLatitude();
+        BigDecimal longitude = key.getLongitude();
 
         // 添加调试日志，显示请求参数
         log.debug("getCurrentWeather request: lat={}, lon={}, forceRefresh={}",
                 latitude, longitude, request.getForceRefresh());
 
+        // 优先使用本地缓存，命中时无需查询数据库
+        boolean forceRefresh = request.getForceRefresh() != null && request.getForceRefresh();
+        if (!forceRefresh) {
+            WeatherCurrent cached = currentCache.get(key);
+            if (cached != null) {
+                log.debug("Local cache hit for lat={}, lon={}, dt={}", latitude, longitude, cached.getDt());
+                fetchMetrics.recordHit(key);
+                return CompletableFuture.completedFuture(convertToCurrentDTO(cached, request));
+            }
+        }
+
         // 检查数据库中是否有足够新的数据
-        List<WeatherCurrent> latestDataList = currentRepository.findTopByCoordinatesOrderByDtDesc(latitude, longitude);
-        Optional<WeatherCurrent> latestData = latestDataList.isEmpty() ? Optional.empty() : Optional.of(latestDataList.get(0));
+        Optional<WeatherCurrent> latestData = currentLatestRepository.findByKey(key)
+                .map(WeatherCurrentLatest::getCurrent);
+        return resolveCurrentWeather(key, request, latestData)
+                .thenApply(data -> convertToCurrentDTO(data, request));
+    }
+
+    @Override
+    public List<WeatherCurrentDTO> getCurrentWeatherBatch(List<WeatherRequestDTO> requests) {
+        // 相同网格的请求只处理一次，使用该网格的第一个请求的参数；坐标无效的条目跳过
+        List<CoordinateKey> requestKeys = new ArrayList<>(requests.size());
+        Map<CoordinateKey, WeatherRequestDTO> keyRequests = new LinkedHashMap<>();
+        for (WeatherRequestDTO request : requests) {
+            CoordinateKey key = keyOfOrNull(request);
+            requestKeys.add(key);
+            if (key != null) {
+                keyRequests.putIfAbsent(key, request);
+            }
+        }
+
+        // 先批量查询本地缓存
+        List<CoordinateKey> cacheable = new ArrayList<>();
+        for (Map.Entry<CoordinateKey, WeatherRequestDTO> entry : keyRequests.entrySet()) {
+            if (!Boolean.TRUE.equals(entry.getValue().getForceRefresh())) {
+                cacheable.add(entry.getKey());
+            }
+        }
+        Map<Long, WeatherCurrent> cached = currentCache.getAll(cacheable);
+
+        // 未命中的网格一次查询数据库中的最新快照
+        List<CoordinateKey> misses = new ArrayList<>();
+        for (CoordinateKey key : keyRequests.keySet()) {
+            if (!cached.containsKey(key.getValue())) {
+                misses.add(key);
+            }
+        }
+        Map<Long, WeatherCurrent> stored = findLatestByKeys(misses);
+
+        // 过期或缺失的网格并发刷新
+        Map<Long, CompletableFuture<WeatherCurrent>> results = new HashMap<>();
+        for (Map.Entry<CoordinateKey, WeatherRequestDTO> entry : keyRequests.entrySet()) {
+            CoordinateKey key = entry.getKey();
+            WeatherCurrent hit = cached.get(key.getValue());
+            if (hit != null) {
+                fetchMetrics.recordHit(key);
+                results.put(key.getValue(), CompletableFuture.completedFuture(hit));
+            } else {
+                CompletableFuture<WeatherCurrent> future;
+                try {
+                    future = resolveCurrentWeather(key, entry.getValue(), Optional.ofNullable(stored.get(key.getValue())));
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                results.put(key.getValue(), future);
+            }
+        }
+        CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+
+        // 按请求顺序组装结果，坐标无效或无法获取数据的条目不返回
+        List<WeatherCurrentDTO> response = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (requestKeys.get(i) == null) {
+                continue;
+            }
+            CompletableFuture<WeatherCurrent> future = results.get(requestKeys.get(i).getValue());
+            if (future.isCompletedExceptionally()) {
+                log.warn("Unable to fetch current weather for lat={}, lon={} in batch",
+                        requests.get(i).getLatitude(), requests.get(i).getLongitude());
+                continue;
+            }
+            response.add(convertToCurrentDTO(future.join(), requests.get(i)));
+        }
+        return response;
+    }
+
+    /**
+     * 计算批量请求条目的网格键，坐标缺失或超出范围时返回null
+     */
+    private CoordinateKey keyOfOrNull(WeatherRequestDTO request) {
+        if (request.getLatitude() == null || request.getLongitude() == null) {
+            log.warn("Skipping batch item without coordinates");
+            return null;
+        }
+        try {
+            return coordinateGrid.keyOf(request.getLatitude(), request.getLongitude());
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            log.warn("Skipping batch item with invalid coordinates lat={}, lon={}", request.getLatitude(), request.getLongitude());
+            return null;
+        }
+    }
+
+    /**
+     * 根据已查询到的最新快照决定直接返回、返回已存储数据或刷新，结果写入本地缓存
+     */
+    private CompletableFuture<WeatherCurrent> resolveCurrentWeather(CoordinateKey key, WeatherRequestDTO request,
+                                                                    Optional<WeatherCurrent> latestData) {
+        BigDecimal latitude = key.getLatitude();
+        BigDecimal longitude = key.getLongitude();
+        boolean forceRefresh = request.getForceRefresh() != null && request.getForceRefresh();
         long currentTime = System.currentTimeMillis() / 1000; // 当前时间戳，单位秒
 
         if (latestData.isPresent()) {
@@ -93,9 +292,6 @@ public class WeatherServiceImpl implements WeatherService {
             log.debug("No existing data found for coordinates");
         }
 
-        // 初始化weatherData变量
-        WeatherCurrent weatherData = null;
-
         // 检查是否需要强制刷新或缓存是否有效
         boolean shouldUseCache = latestData.isPresent() &&
                                (currentTime - latestData.get().getDt() < getMaxAgeCurrentWeather()) &&
@@ -103,145 +299,86 @@ public class WeatherServiceImpl implements WeatherService {
 
         log.debug("Should use cache: {}, cache max age: {} seconds", shouldUseCache, getMaxAgeCurrentWeather());
 
+        CompletableFuture<WeatherCurrent> weatherData;
         if (shouldUseCache) {
             // 使用数据库中的数据
-            weatherData = latestData.get();
+            weatherData = CompletableFuture.completedFuture(latestData.get());
+            fetchMetrics.recordHit(key);
             log.info("Using cached current weather data for lat={}, lon={}, cache time={}min, forceRefresh={}",
                     latitude, longitude, systemConfigService.getDataFetchInterval(), request.getForceRefresh());
+        } else if (!forceRefresh && latestData.isPresent() && weatherApiClient.getCircuitState() != CircuitBreaker.State.CLOSED) {
+            // 熔断期间不等待上游，直接返回已存储的数据，熔断恢复后在后台刷新
+            weatherData = CompletableFuture.completedFuture(latestData.get());
+            scheduleRevalidation(key, request);
+            log.info("Weather API circuit is not closed, serving stored current weather for lat={}, lon={}", latitude, longitude);
         } else {
-            try {
-                // 调用API获取新数据
-                log.debug("Fetching new data from API for lat={}, lon={}", latitude, longitude);
-                weatherData = fetchCurrentWeatherFromApi(latitude, longitude, request.getUnits(), request.getLang());
-                log.debug("API returned data with dt={}", weatherData.getDt());
-
-                // 查询是否已存在相同坐标和时间戳的记录
-                Optional<WeatherCurrent> existingRecord = currentRepository.findByLatitudeAndLongitudeAndDt(
-                        latitude, longitude, weatherData.getDt());
-
-                if (existingRecord.isPresent()) {
-                    // 如果存在相同时间戳的数据，直接使用已存在的记录
-                    log.info("Found existing weather data with same timestamp, using it instead of inserting new record");
-                    weatherData = existingRecord.get();
-                } else {
-                    try {
-                        // 保存到数据库
-                        weatherData = currentRepository.save(weatherData);
-                        log.info("Successfully saved weather data for lat={}, lon={}, dt={}, forceRefresh={}",
-                                latitude, longitude, weatherData.getDt(), request.getForceRefresh());
-                    } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-                        // 唯一约束冲突，可能是并发插入导致，尝试重新查询
-                        log.warn("Constraint violation detected when saving weather data: {}", e.getMessage());
-
-                        // 延迟一小段时间，确保数据已提交
-                        try {
-                            Thread.sleep(15);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                        }
-
-                        // 1. 首先尝试精确查询（相同坐标和时间戳）
-                        Optional<WeatherCurrent> conflictRecord = currentRepository.findByLatitudeAndLongitudeAndDt(
-                                latitude, longitude, weatherData.getDt());
-
-                        if (conflictRecord.isPresent()) {
-                            weatherData = conflictRecord.get();
-                            log.info("Successfully retrieved existing record after constraint violation");
-                        } else {
-                            // 2. 如果精确查询找不到，尝试根据经纬度查找最新记录
-                            List<WeatherCurrent> latestRecords = currentRepository.findTopByCoordinatesOrderByDtDesc(
-                                    latitude, longitude);
-                            if (!latestRecords.isEmpty()) {
-                                weatherData = latestRecords.get(0);
-                                log.info("Using latest available record as fallback after constraint violation, dt={}", weatherData.getDt());
-                            } else if (latestData.isPresent()) {
-                                // 3. 使用查询时的最新记录
-                                weatherData = latestData.get();
-                                log.info("Using initial query result as fallback after constraint violation");
-                            } else {
-                                // 由于我们已经获取了API的数据，直接使用它而不抛出异常
-                                log.warn("Unable to find any existing record after constraint violation, using API data without persisting");
-                                // 不修改weatherData，继续使用API返回的数据
-                            }
-                        }
-                    } catch (Exception e) {
-                        // 其他类型的异常
-                        log.error("Failed to save weather data: {}", e.getMessage(), e);
+            // 相同坐标的并发刷新只由一个请求调用API并保存，其余请求等待同一结果
+            weatherData = currentWeatherFetches.executeAsync(key.getValue(),
+                    () -> fetchAndSaveCurrentWeather(key, request.getUnits(), request.getLang()))
+                    .exceptionally(e -> {
+                        // 处理可能的API调用异常或数据库操作异常
+                        RuntimeException cause = FutureUtils.unwrap(e);
+                        log.error("Error during weather data operation: {}", cause.getMessage(), cause);
+
+                        // 如果有缓存数据，则回退使用缓存数据
                         if (latestData.isPresent()) {
-                            weatherData = latestData.get();
-                            log.info("Using cached data due to save error");
-                        } else {
-                            // 继续使用API数据
-                            log.warn("Using API data without persisting due to error");
-                        }
-                    }
-                }
-            } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-                // 顶层捕获唯一约束冲突
-                log.warn("Constraint violation detected at top level: {}", e.getMessage());
-
-                Long dt = (weatherData != null) ? weatherData.getDt() : null;
-
-                if (dt != null) {
-                    // 多次尝试查询
-                    for (int i = 0; i < 3; i++) {
-                        try {
-                            Thread.sleep(10 * (i + 1));  // 递增延迟
-
-                            Optional<WeatherCurrent> conflictRecord = currentRepository.findByLatitudeAndLongitudeAndDt(
-                                    latitude, longitude, dt);
-
-                            if (conflictRecord.isPresent()) {
-                                weatherData = conflictRecord.get();
-                                log.info("Successfully retrieved existing record at top level after {} retries", i);
-                                break;
+                            log.info("Using cached data due to error for lat={}, lon={}", latitude, longitude);
+                            if (weatherApiClient.getCircuitState() != CircuitBreaker.State.CLOSED) {
+                                scheduleRevalidation(key, request);
                             }
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
+                            return latestData.get();
                         }
-                    }
-                }
+                        throw new RuntimeException("Unable to fetch weather data", cause);
+                    });
+        }
 
-                // 如果重试后仍未找到记录
-                if (weatherData == null || weatherData.getId() == null) {
-                    // 尝试查找最新记录
-                    List<WeatherCurrent> latestRecords = currentRepository.findTopByCoordinatesOrderByDtDesc(
-                            latitude, longitude);
-                    if (!latestRecords.isEmpty()) {
-                        weatherData = latestRecords.get(0);
-                        log.info("Using latest available record as fallback at top level");
-                    } else if (latestData.isPresent()) {
-                        // 回退使用最新缓存数据
-                        weatherData = latestData.get();
-                        log.info("Using cached data as fallback at top level");
-                    }
-                    // 如果所有方法都失败，继续使用API获取的数据
-                }
-            } catch (Exception e) {
-                // 处理可能的API调用异常或数据库操作异常
-                log.error("Error during weather data operation: {}", e.getMessage(), e);
+        return weatherData.thenApply(data -> {
+            // 写入本地缓存（API刷新路径与定时同步路径都会经过此处）
+            currentCache.put(key, data);
+            return data;
+        });
+    }
 
-                // 如果有缓存数据，则回退使用缓存数据
-                if (latestData.isPresent()) {
-                    weatherData = latestData.get();
-                    log.info("Using cached data due to error for lat={}, lon={}", latitude, longitude);
-                }
-                // 否则继续使用API数据（如果已获取）或抛出异常（如果API调用也失败）
-                else if (weatherData == null) {
-                    throw new RuntimeException("Unable to fetch weather data", e);
-                }
+    /**
+     * 一次查询多个网格的最新实时天气，返回键值到数据的映射
+     */
+    private Map<Long, WeatherCurrent> findLatestByKeys(List<CoordinateKey> keys) {
+        Map<Long, WeatherCurrent> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        Set<BigDecimal> latitudes = new HashSet<>();
+        Set<BigDecimal> longitudes = new HashSet<>();
+        Set<Long> wanted = new HashSet<>();
+        for (CoordinateKey key : keys) {
+            latitudes.add(key.getLatitude());
+            longitudes.add(key.getLongitude());
+            wanted.add(key.getValue());
+        }
+        for (WeatherCurrentLatest latest : currentLatestRepository.findAllByCoordinates(latitudes, longitudes)) {
+            long value = coordinateGrid.keyOf(latest.getLatitude(), latest.getLongitude()).getValue();
+            if (wanted.contains(value)) {
+                result.put(value, latest.getCurrent());
             }
         }
+        return result;
+    }
 
-        // 转换为DTO
-        return convertToCurrentDTO(weatherData);
+    /**
+     * 熔断器半开时用一个待刷新网格作为试探请求，恢复后在后台刷新其余网格
+     */
+    @EventListener
+    public void onCircuitStateChanged(WeatherCircuitStateChangedEvent event) {
+        if (event.getTo() == CircuitBreaker.State.HALF_OPEN) {
+            probeIfHalfOpen();
+        } else if (event.getTo() == CircuitBreaker.State.CLOSED) {
+            new ArrayList<>(pendingRevalidations.values()).forEach(this::revalidateInBackground);
+        }
     }
 
     @Override
     public List<WeatherForecastDTO> getWeatherForecast(WeatherRequestDTO request) {
-        BigDecimal latitude = request.getLatitude();
-        BigDecimal longitude = request.getLongitude();
+        CoordinateKey key = coordinateGrid.keyOf(request.getLatitude(), request.getLongitude());
         long currentTime = System.currentTimeMillis() / 1000; // 当前时间戳，单位秒
 
         // 计算请求时间范围
@@ -254,121 +391,354 @@ public class WeatherServiceImpl implements WeatherService {
             endTime = endTime + 23 * 3600;
         }
 
-        long secondsInDay = 24 * 60 * 60;
-        long fourDays = currentTime + 4 * secondsInDay;
-        long sixteenDays = currentTime + 16 * secondsInDay;
-        long thirtyDays = currentTime + 30 * secondsInDay;
-
-        if (endTime <= fourDays) {
-            // 全部在0-4天内，用小时级API
-            return getHourlyForecast(latitude, longitude, startTime, endTime, request.getUnits(), request.getLang(), request.getForceRefresh());
-        } else if (endTime <= sixteenDays) {
-            // 覆盖到4-16天，用16天API
-            return getDailyForecast(latitude, longitude, startTime, endTime, request.getUnits(), request.getLang(), request.getForceRefresh());
-        } else {
-            // 覆盖到16-30天，用30天API
-            return getClimateForecast(latitude, longitude, startTime, endTime, request.getUnits(), request.getLang(), request.getForceRefresh());
+        // 按整点小时对齐后缓存，同一小时内相同范围的请求共享拼接结果
+        long rangeStart = gapDetector.slotStart(ForecastGapDetector.Granularity.HOURLY,
+                gapDetector.slotOf(ForecastGapDetector.Granularity.HOURLY, startTime));
+        long rangeEnd = gapDetector.slotEnd(ForecastGapDetector.Granularity.HOURLY,
+                gapDetector.slotOf(ForecastGapDetector.Granularity.HOURLY, endTime));
+        String cacheKey = key.getValue() + ":" + request.getUnits() + ":" + request.getLang() + ":" + rangeStart + ":" + rangeEnd;
+        boolean forceRefresh = request.getForceRefresh() != null && request.getForceRefresh();
+
+        List<WeatherForecastDTO> stitched = forceRefresh ? null : forecastCache.getIfPresent(cacheKey);
+        if (stitched == null) {
+            stitched = stitchForecast(key, rangeStart, rangeEnd, request.getUnits(), request.getLang(),
+                    request.getForceRefresh(), currentTime);
+            // 含过期数据的结果不缓存，以便后台刷新完成后立即可见
+            if (stitched.stream().noneMatch(f -> Boolean.TRUE.equals(f.getStale()))) {
+                forecastCache.put(cacheKey, stitched);
+            }
+        }
+
+        long from = startTime;
+        long to = endTime;
+        return stitched.stream()
+                .filter(f -> f.getDt() >= from && f.getDt() <= to)
+                .map(f -> withRequestCoordinates(f, request))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 将时间范围按各预报API的可返回范围拆分：小时级预报覆盖到96小时，之后由16天预报覆盖，再之后由30天预报覆盖。
+     * 各分段并行查询（只有存在缺口的分段会调用API），按时间顺序拼接为一个序列，每个点以resolution标明粒度
+     */
+    private List<WeatherForecastDTO> stitchForecast(CoordinateKey key, long startTime, long endTime, String units,
+                                                    String lang, Boolean forceRefresh, long currentTime) {
+        long hourlyEnd = horizonEnd(HOURLY_TIER, currentTime);
+        long dailyEnd = horizonEnd(DAILY_TIER, currentTime);
+
+        List<CompletableFuture<List<WeatherForecastDTO>>> segments = new ArrayList<>(3);
+        if (startTime <= hourlyEnd) {
+            long segmentEnd = Math.min(endTime, hourlyEnd);
+            segments.add(forecastSegment(() -> getHourlyForecast(key, startTime, segmentEnd, units, lang, forceRefresh)));
+        }
+        long dailyStart = Math.max(startTime, hourlyEnd + 1);
+        if (dailyStart <= endTime && dailyStart <= dailyEnd) {
+            long segmentEnd = Math.min(endTime, dailyEnd);
+            segments.add(forecastSegment(() -> getDailyForecast(key, dailyStart, segmentEnd, units, lang, forceRefresh)));
         }
+        long climateStart = Math.max(startTime, dailyEnd + 1);
+        if (climateStart <= endTime) {
+            segments.add(forecastSegment(() -> getClimateForecast(key, climateStart, endTime, units, lang, forceRefresh)));
+        }
+
+        // 各分段时间范围互不重叠且按时间先后排列，依次拼接即为有序序列
+        List<WeatherForecastDTO> result = new ArrayList<>();
+        for (CompletableFuture<List<WeatherForecastDTO>> segment : segments) {
+            result.addAll(FutureUtils.join(segment));
+        }
+        return result;
+    }
+
+    private CompletableFuture<List<WeatherForecastDTO>> forecastSegment(Supplier<List<WeatherForecastDTO>> query) {
+        return CompletableFuture.supplyAsync(OpenWeatherMapRateLimiter.withCurrentPriority(query), forecastExecutor);
+    }
+
+    /**
+     * 预报API可返回范围的结束时间戳（含）
+     */
+    private long horizonEnd(ForecastTier tier, long currentTime) {
+        long lastSlot = gapDetector.slotOf(tier.granularity, currentTime) + tier.horizonSlots - 1;
+        return gapDetector.slotEnd(tier.granularity, lastSlot);
     }
 
     @Override
     public List<WeatherHistoricalDTO> getHistoricalWeather(WeatherRequestDTO request) {
-        BigDecimal latitude = request.getLatitude();
-        BigDecimal longitude = request.getLongitude();
+        return loadHistorical(request).rows.stream()
+                .map(h -> convertToHistoricalDTO(h, request))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int backfillHistoricalWeather(WeatherRequestDTO request) {
+        return loadHistorical(request).failedHours;
+    }
+
+    /**
+     * 读取时间范围内的历史数据，缺失的小时按区间从API获取并写入
+     */
+    private HistoricalLoad loadHistorical(WeatherRequestDTO request) {
+        CoordinateKey key = coordinateGrid.keyOf(request.getLatitude(), request.getLongitude());
+        BigDecimal latitude = key.getLatitude();
+        BigDecimal longitude = key.getLongitude();
         if (request.getStartTime() == null || request.getEndTime() == null) {
             throw new IllegalArgumentException("Historical weather request must include startTime and endTime");
         }
         Long startTime = request.getStartTime();
         Long endTime = request.getEndTime();
-        long dataCount = historicalRepository.countByCoordinatesInTimeRange(latitude, longitude, startTime, endTime);
-        int expectedCount = (int) ((endTime - startTime) / 3600) + 1; // 每小时一条数据
-        List<WeatherHistorical> historicalData;
-        // 100%完成度
-        boolean shouldUseCache = dataCount == expectedCount && (request.getForceRefresh() == null || !request.getForceRefresh());
-        if (shouldUseCache) {
-            historicalData = historicalRepository.findByCoordinatesInTimeRange(latitude, longitude, startTime, endTime);
-            log.info("Using {} cached historical weather records for lat={}, lon={}", dataCount, latitude, longitude);
+        long currentTime = System.currentTimeMillis() / 1000;
+        boolean forceRefresh = request.getForceRefresh() != null && request.getForceRefresh();
+
+        // 只有已经过去的整点才有历史数据
+        long firstHour = HourlyCoverage.hourOf(startTime + 3599);
+        long lastHour = Math.min(HourlyCoverage.hourOf(endTime), HourlyCoverage.hourOf(currentTime) - 1);
+        List<WeatherHistorical> stored = historicalRepository.findByKeyInTimeRange(key, startTime, endTime);
+
+        List<HourlyCoverage.HourRange> chunks;
+        HourlyCoverage coverage = loadHistoricalCoverage(key, firstHour, lastHour);
+        if (forceRefresh) {
+            chunks = HourlyCoverage.ranges(firstHour, lastHour, weatherConfig.getHistoricalChunkHours());
         } else {
-            try {
-                historicalData = fetchHistoricalWeatherFromApi(latitude, longitude, startTime, endTime, request.getUnits(), request.getLang());
+            // 覆盖记录之前写入的数据同样视为已获取
+            stored.forEach(h -> coverage.mark(HourlyCoverage.hourOf(h.getDt())));
+            chunks = coverage.missingRanges(firstHour, lastHour, weatherConfig.getHistoricalChunkHours());
+        }
 
-                try {
-                    // 逐个保存，避免批量保存时的唯一约束冲突
-                    List<WeatherHistorical> result = new ArrayList<>();
-                    for (WeatherHistorical historical : historicalData) {
-                        try {
-                            // 先检查是否已存在
-                            Optional<WeatherHistorical> existing = historicalRepository.findByCoordinatesAndDt(
-                                    latitude, longitude, historical.getDt());
-
-                            if (existing.isPresent()) {
-                                // 如果存在，直接使用现有记录
-                                result.add(existing.get());
-                                log.debug("Using existing historical weather record for dt={}", historical.getDt());
-                            } else {
-                                // 如果不存在，保存新记录
-                                result.add(historicalRepository.save(historical));
-                                log.debug("Saved new historical weather record for dt={}", historical.getDt());
-                            }
-                        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-                            // 处理唯一约束冲突
-                            log.warn("Constraint violation when saving historical weather for dt={}: {}",
-                                    historical.getDt(), e.getMessage());
-
-                            try {
-                                Thread.sleep(35); // 使用35ms的延时，介于当前天气和预报天气之间
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                            }
+        if (chunks.isEmpty()) {
+            fetchMetrics.recordHit(key);
+            log.info("Using {} cached historical weather records for lat={}, lon={}", stored.size(), latitude, longitude);
+            return new HistoricalLoad(stored, 0);
+        }
 
-                            // 尝试查找冲突记录
-                            Optional<WeatherHistorical> conflictRecord = historicalRepository.findByCoordinatesAndDt(
-                                    latitude, longitude, historical.getDt());
-
-                            if (conflictRecord.isPresent()) {
-                                result.add(conflictRecord.get());
-                                log.info("Retrieved existing historical weather after constraint violation for dt={}",
-                                        historical.getDt());
-                            } else {
-                                // 如果找不到，使用原始对象（不含ID）
-                                log.warn("Could not find existing record after constraint violation, using original data for dt={}",
-                                        historical.getDt());
-                                result.add(historical);
-                            }
-                        } catch (Exception e) {
-                            // 其他异常
-                            log.error("Error saving historical weather for dt={}: {}",
-                                    historical.getDt(), e.getMessage());
-                            result.add(historical); // 添加原始对象
-                        }
-                    }
-                    historicalData = result;
-                    log.info("Processed {} historical weather records with individual save", historicalData.size());
+        // 与其他请求正在获取的区间重叠的部分等待其结果，其余部分由本请求获取
+        List<RangeReservations.Claim<List<WeatherHistorical>>> claims = new ArrayList<>(chunks.size());
+        List<RangeReservations.Reservation<List<WeatherHistorical>>> owned = new ArrayList<>();
+        List<RangeReservations.Reservation<List<WeatherHistorical>>> borrowed = new ArrayList<>();
+        for (HourlyCoverage.HourRange chunk : chunks) {
+            RangeReservations.Claim<List<WeatherHistorical>> claim =
+                    historicalFetches.claim(key.getValue(), chunk.getFirstHour(), chunk.getLastHour());
+            claims.add(claim);
+            owned.addAll(claim.getOwned());
+            borrowed.addAll(claim.getBorrowed());
+        }
+
+        List<WeatherHistorical> fetched = new ArrayList<>();
+        List<WeatherHistorical> shared = new ArrayList<>();
+        int failedHours = 0;
+        try {
+            // 缺失的小时按区间并发请求，单个区间失败（包括调用额度不足）不影响其余区间
+            log.info("Fetching {} missing historical chunks for lat={}, lon={} ({} already in flight)",
+                    owned.size(), latitude, longitude, borrowed.size());
+            List<CompletableFuture<?>> pending = new ArrayList<>(owned.size() + borrowed.size());
+            for (RangeReservations.Reservation<List<WeatherHistorical>> range : owned) {
+                range.completeWith(fetchHistoricalWeatherFromApi(latitude, longitude,
+                        range.getFirst() * 3600, range.getLast() * 3600, request.getUnits(), request.getLang()));
+                pending.add(range.getFuture());
+            }
+            borrowed.forEach(range -> pending.add(range.getFuture()));
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+
+            HourlyCoverage fetchedCoverage = new HourlyCoverage();
+            long lastSettledHour = HourlyCoverage.lastSettledHour(currentTime, weatherConfig.getHistoricalSettleHours());
+            for (RangeReservations.Reservation<List<WeatherHistorical>> range : owned) {
+                List<WeatherHistorical> rows = reservedRows(range);
+                if (rows == null) {
+                    failedHours += range.getLast() - range.getFirst() + 1;
+                    continue;
+                }
+                fetched.addAll(rows);
+                rows.forEach(h -> fetchedCoverage.mark(HourlyCoverage.hourOf(h.getDt())));
+                // API没有返回数据的小时，只有足够久远时才记为已获取，近期数据可能尚未入库
+                fetchedCoverage.markSettled(range.getFirst(), range.getLast(), lastSettledHour);
+            }
+            // 其他请求获取的数据由其负责写入
+            for (RangeReservations.Reservation<List<WeatherHistorical>> range : borrowed) {
+                List<WeatherHistorical> rows = reservedRows(range);
+                if (rows == null) {
+                    failedHours += range.getLast() - range.getFirst() + 1;
+                } else {
+                    shared.addAll(rows);
+                }
+            }
+
+            if (!fetchedCoverage.getMasks().isEmpty()) {
+                fetchMetrics.recordFetch(key);
+                try {
+                    // 整批一条语句写入，已存在的记录由数据库直接更新
+                    fetched = upsertRepository.upsertHistorical(fetched);
+                    fetchedCoverage.getMasks().forEach(coverage::addDay);
+                    Map<Long, Integer> masks = new HashMap<>();
+                    fetchedCoverage.getMasks().keySet().forEach(day -> masks.put(day, coverage.getMasks().get(day)));
+                    upsertRepository.upsertHistoricalCoverage(latitude, longitude, masks);
+                    log.info("Saved {} historical weather records for {} chunks", fetched.size(), owned.size());
                 } catch (Exception e) {
-                    // 如果整个保存过程失败，记录错误但继续使用API数据
+                    // 如果保存失败，记录错误但继续使用API数据
                     log.error("Failed to save historical weather data: {}", e.getMessage(), e);
                 }
+            } else if (owned.isEmpty()) {
+                fetchMetrics.recordHit(key);
+            }
+        } finally {
+            claims.forEach(RangeReservations.Claim::release);
+        }
+
+        Map<Long, WeatherHistorical> merged = new HashMap<>();
+        stored.forEach(h -> merged.put(h.getDt(), h));
+        shared.forEach(h -> merged.put(h.getDt(), h));
+        fetched.forEach(h -> merged.put(h.getDt(), h));
+        List<WeatherHistorical> rows = merged.values().stream()
+                .filter(h -> h.getDt() >= startTime && h.getDt() <= endTime)
+                .sorted(Comparator.comparing(WeatherHistorical::getDt))
+                .collect(Collectors.toList());
+        return new HistoricalLoad(rows, failedHours);
+    }
+
+    /**
+     * 区间获取结果中属于该区间的记录，获取失败时记录日志并返回null
+     */
+    private List<WeatherHistorical> reservedRows(RangeReservations.Reservation<List<WeatherHistorical>> range) {
+        CompletableFuture<List<WeatherHistorical>> future = range.getFuture();
+        if (future.isCompletedExceptionally()) {
+            log.error("Error fetching historical weather chunk [{}, {}]: {}", range.getFirst() * 3600, range.getLast() * 3600,
+                    FutureUtils.unwrap(future.handle((r, e) -> e).join()).getMessage());
+            return null;
+        }
+        return future.join().stream()
+                .filter(h -> HourlyCoverage.hourOf(h.getDt()) >= range.getFirst()
+                        && HourlyCoverage.hourOf(h.getDt()) <= range.getLast())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 读取坐标在小时范围内各自然日的覆盖掩码
+     */
+    private HourlyCoverage loadHistoricalCoverage(CoordinateKey key, long firstHour, long lastHour) {
+        HourlyCoverage coverage = new HourlyCoverage();
+        if (firstHour > lastHour) {
+            return coverage;
+        }
+        for (WeatherHistoricalCoverage day : coverageRepository.findByKeyInDayRange(
+                key, HourlyCoverage.dayOf(firstHour), HourlyCoverage.dayOf(lastHour))) {
+            coverage.addDay(day.getEpochDay(), day.getHourMask());
+        }
+        return coverage;
+    }
+
+    // 私有辅助方法
+
+    /**
+     * 调用API获取实时天气并保存到数据库
+     * 由currentWeatherFetches保证同一坐标同时只有一个调用者执行
+     */
+    private CompletableFuture<WeatherCurrent> fetchAndSaveCurrentWeather(CoordinateKey key, String units, String lang) {
+        log.debug("Fetching new data from API for lat={}, lon={}", key.getLatitude(), key.getLongitude());
+        return fetchCurrentWeatherFromApi(key.getLatitude(), key.getLongitude(), units, lang)
+                .thenApply(weatherData -> saveCurrentWeather(key, weatherData));
+    }
+
+    private WeatherCurrent saveCurrentWeather(CoordinateKey key, WeatherCurrent weatherData) {
+        BigDecimal latitude = key.getLatitude();
+        BigDecimal longitude = key.getLongitude();
+        fetchMetrics.recordFetch(key);
+        pendingRevalidations.remove(key.getValue());
+        log.debug("API returned data with dt={}", weatherData.getDt());
+
+        try {
+            // 一条语句写入，相同坐标和时间戳的记录由数据库直接合并
+            weatherData = upsertRepository.upsertCurrent(weatherData);
+            log.info("Successfully saved weather data for lat={}, lon={}, dt={}",
+                    latitude, longitude, weatherData.getDt());
+        } catch (Exception e) {
+            log.error("Failed to save weather data, using API data without persisting: {}", e.getMessage(), e);
+        }
+
+        // 更新该坐标的最新快照
+        if (weatherData.getId() != null) {
+            try {
+                currentLatestRepository.upsertLatest(key, weatherData.getDt(), weatherData.getId());
             } catch (Exception e) {
-                // 处理API调用或其他处理错误
-                log.error("Error fetching historical weather data: {}", e.getMessage(), e);
+                log.error("Failed to update latest weather snapshot: {}", e.getMessage(), e);
+            }
+        }
 
-                // 尝试从数据库获取可用数据
-                historicalData = historicalRepository.findByCoordinatesInTimeRange(
-                        latitude, longitude, startTime, endTime);
+        // 在释放合并请求前写入缓存，使随后到达的请求直接命中
+        currentCache.put(key, weatherData);
+        return weatherData;
+    }
 
-                if (historicalData.isEmpty()) {
-                    log.warn("No historical weather data available in database, returning empty list");
-                } else {
-                    log.info("Using {} existing historical weather records as fallback", historicalData.size());
-                }
+    /**
+     * 记录需要在熔断恢复后刷新的网格
+     */
+    private void scheduleRevalidation(CoordinateKey key, WeatherRequestDTO request) {
+        pendingRevalidations.computeIfAbsent(key.getValue(), k -> {
+            WeatherRequestDTO refresh = new WeatherRequestDTO();
+            refresh.setLatitude(key.getLatitude());
+            refresh.setLongitude(key.getLongitude());
+            refresh.setUnits(request.getUnits());
+            refresh.setLang(request.getLang());
+            refresh.setForceRefresh(true);
+            return refresh;
+        });
+        probeIfHalfOpen();
+    }
+
+    /**
+     * 熔断器半开且没有进行中的试探时，用一个待刷新网格发起试探请求。
+     * 半开时可能还没有待刷新网格，试探也可能被限流或其他调用占用而未发出，
+     * 因此每次登记待刷新网格时都会检查；试探使用交互额度，不受后台余量限制
+     */
+    private void probeIfHalfOpen() {
+        while (weatherApiClient.getCircuitState() == CircuitBreaker.State.HALF_OPEN && probing.compareAndSet(false, true)) {
+            Optional<WeatherRequestDTO> request = pendingRevalidations.values().stream().findFirst();
+            if (request.isPresent()) {
+                probe(request.get());
+                return;
+            }
+            probing.set(false);
+            if (pendingRevalidations.isEmpty()) {
+                return;
             }
         }
-        return historicalData.stream().map(this::convertToHistoricalDTO).collect(Collectors.toList());
     }
 
-    // 私有辅助方法
+    private void probe(WeatherRequestDTO request) {
+        try {
+            refreshExecutor.execute(() -> {
+                CompletableFuture<WeatherCurrentDTO> future;
+                try {
+                    future = getCurrentWeatherAsync(request);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((data, e) -> {
+                    probing.set(false);
+                    if (e != null) {
+                        log.warn("Circuit probe failed for lat={}, lon={}: {}",
+                                request.getLatitude(), request.getLongitude(), FutureUtils.unwrap(e).getMessage());
+                    }
+                });
+            });
+        } catch (TaskRejectedException e) {
+            probing.set(false);
+            log.warn("Background revalidation queue is full, skipping circuit probe for lat={}, lon={}",
+                    request.getLatitude(), request.getLongitude());
+        }
+    }
 
-    private WeatherCurrent fetchCurrentWeatherFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang) {
+    private void revalidateInBackground(WeatherRequestDTO request) {
+        try {
+            refreshExecutor.execute(() -> OpenWeatherMapRateLimiter.background(() -> getCurrentWeatherAsync(request))
+                    .whenComplete((data, e) -> {
+                        if (e != null) {
+                            log.warn("Background revalidation failed for lat={}, lon={}: {}",
+                                    request.getLatitude(), request.getLongitude(), FutureUtils.unwrap(e).getMessage());
+                        }
+                    }));
+        } catch (TaskRejectedException e) {
+            log.warn("Background revalidation queue is full, skipping lat={}, lon={}", request.getLatitude(), request.getLongitude());
+        }
+    }
+
+    private CompletableFuture<WeatherCurrent> fetchCurrentWeatherFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang) {
         String url = UriComponentsBuilder.fromHttpUrl(weatherConfig.getCurrentWeatherUrl())
                 .queryParam("lat", latitude)
                 .queryParam("lon", longitude)
@@ -378,10 +748,12 @@ public class WeatherServiceImpl implements WeatherService {
                 .build()
                 .toUriString();
 
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        return weatherApiClient.getAsync(url).thenApply(body -> parseCurrentWeather(latitude, longitude, body));
+    }
 
+    private WeatherCurrent parseCurrentWeather(BigDecimal latitude, BigDecimal longitude, String body) {
         try {
-            JsonNode root = objectMapper.readTree(response.getBody());
+            JsonNode root = objectMapper.readTree(body);
 
             WeatherCurrent weatherCurrent = new WeatherCurrent();
             weatherCurrent.setLatitude(latitude);
@@ -457,123 +829,217 @@ public class WeatherServiceImpl implements WeatherService {
         }
     }
 
+    private List<WeatherForecastDTO> getHourlyForecast(CoordinateKey key, Long startTime, Long endTime, String units, String lang, Boolean forceRefresh) {
+        return getForecast(key, HOURLY_TIER, startTime, endTime, forceRefresh,
+                slots -> fetchHourlyForecastFromApi(key.getLatitude(), key.getLongitude(), units, lang));
+    }
+
     /**
-     * 批量去重并更新已存在的WeatherForecast数据，避免唯一索引冲突
+     * 按缺口增量获取预报数据
+     * 先按整段时段查询已存储数据并计算缺失的时段，缺口全部超出上游API可返回的范围时不调用API；
+     * 否则只请求覆盖缺口所需的天数，并只写入缺失时段的记录。
+     * 可返回范围内的已存储数据发布时间超过该类型的有效时长时，不等待刷新，直接返回已存储数据并在后台刷新；
+     * 刷新（含强制刷新）写入API返回的全部时段，并删除被本次发布取代的旧记录
+     *
+     * @param fetcher 按需要的时段数调用上游API
      */
-    private List<WeatherForecast> deduplicateAndMergeForecasts(BigDecimal latitude, BigDecimal longitude, byte forecastType, List<WeatherForecast> apiData) {
-        if (apiData == null || apiData.isEmpty()) return apiData;
-        List<Long> dts = apiData.stream().map(WeatherForecast::getDt).collect(Collectors.toList());
-        List<WeatherForecast> existList = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                latitude, longitude, forecastType,
-                dts.stream().min(Long::compareTo).orElse(0L),
-                dts.stream().max(Long::compareTo).orElse(0L)
-        );
-        // 用dt做key
-        java.util.Map<Long, WeatherForecast> existMap = existList.stream().collect(Collectors.toMap(WeatherForecast::getDt, x -> x));
-        for (WeatherForecast f : apiData) {
-            WeatherForecast exist = existMap.get(f.getDt());
-            if (exist != null) {
-                f.setId(exist.getId());
-                f.setCreatedAt(exist.getCreatedAt());
-            }
+    private List<WeatherForecastDTO> getForecast(CoordinateKey key, ForecastTier tier, Long startTime, Long endTime,
+                                                 Boolean forceRefresh,
+                                                 IntFunction<CompletableFuture<List<WeatherForecast>>> fetcher) {
+        ForecastGapDetector.Granularity granularity = tier.granularity;
+        long currentTime = System.currentTimeMillis() / 1000;
+        long rangeStart = gapDetector.slotStart(granularity, gapDetector.slotOf(granularity, startTime));
+        long rangeEnd = gapDetector.slotEnd(granularity, gapDetector.slotOf(granularity, endTime));
+        List<WeatherForecast> stored = forecastRepository.findByKeyAndTypeInTimeRange(key, tier.forecastType, rangeStart, rangeEnd);
+
+        boolean expired = isExpired(tier, stored, currentTime);
+        boolean refresh = (forceRefresh != null && forceRefresh);
+        ForecastGapDetector.Gaps gaps = detectGaps(tier, startTime, endTime, refresh ? null : stored, currentTime);
+        if (expired && !refresh && gaps.needsFetch()) {
+            // 既然要调用API，一并替换已过期的时段
+            refresh = true;
+            gaps = detectGaps(tier, startTime, endTime, null, currentTime);
         }
-        return apiData;
-    }
 
-    private List<WeatherForecastDTO> getHourlyForecast(BigDecimal latitude, BigDecimal longitude, Long startTime, Long endTime, String units, String lang, Boolean forceRefresh) {
-        long dataCount = forecastRepository.countByCoordinatesAndTypeInTimeRange(
-                latitude, longitude, WeatherForecast.TYPE_HOURLY, startTime, endTime);
-        int expectedCount = (int) ((endTime - startTime) / 3600) + 1; // 每小时一条数据
-        List<WeatherForecast> forecastData;
-        // 100%完成度
-        boolean shouldUseCache = dataCount == expectedCount && (forceRefresh == null || !forceRefresh);
-        if (shouldUseCache) {
-            forecastData = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                    latitude, longitude, WeatherForecast.TYPE_HOURLY, startTime, endTime);
-            log.info("Using {} cached hourly forecast records", dataCount);
+        List<WeatherForecast> forecastData = stored;
+        boolean stale = false;
+        if (!gaps.needsFetch()) {
+            fetchMetrics.recordHit(key);
+            log.info("Using {} cached {} forecast records ({} missing slots outside API range)",
+                    stored.size(), tier.label, gaps.getMissingCount());
+            if (expired) {
+                stale = true;
+                scheduleForecastRefresh(key, tier, fetcher);
+            }
         } else {
+            long firstSlot = gapDetector.slotOf(granularity, currentTime);
+            RangeReservations.Claim<List<WeatherForecast>> claim = forecastFetches.claim(
+                    key.getValue() + ":" + tier.forecastType, firstSlot, firstSlot + gaps.slotsToFetch() - 1);
             try {
-                forecastData = fetchHourlyForecastFromApi(latitude, longitude, units, lang);
-                forecastData = forecastData.stream()
-                        .filter(f -> f.getDt() >= startTime && f.getDt() <= endTime)
-                        .collect(Collectors.toList());
-                forecastData = deduplicateAndMergeForecasts(latitude, longitude, WeatherForecast.TYPE_HOURLY, forecastData);
-
-                try {
-                    // 逐个保存，避免批量保存时的唯一约束冲突
-                    List<WeatherForecast> result = new ArrayList<>();
-                    for (WeatherForecast forecast : forecastData) {
-                        try {
-                            // 先检查是否已存在
-                            Optional<WeatherForecast> existing = forecastRepository.findByCoordinatesAndTypeAndDt(
-                                    latitude, longitude, WeatherForecast.TYPE_HOURLY, forecast.getDt());
-
-                            if (existing.isPresent()) {
-                                // 如果存在，直接使用现有记录
-                                result.add(existing.get());
-                                log.debug("Using existing hourly forecast record for dt={}", forecast.getDt());
-                            } else {
-                                // 如果不存在，保存新记录
-                                result.add(forecastRepository.save(forecast));
-                                log.debug("Saved new hourly forecast record for dt={}", forecast.getDt());
-                            }
-                        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-                            // 处理唯一约束冲突
-                            log.warn("Constraint violation when saving hourly forecast for dt={}: {}",
-                                    forecast.getDt(), e.getMessage());
-
-                            try {
-                                Thread.sleep(30);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                            }
-
-                            // 尝试查找冲突记录
-                            Optional<WeatherForecast> conflictRecord = forecastRepository.findByCoordinatesAndTypeAndDt(
-                                    latitude, longitude, WeatherForecast.TYPE_HOURLY, forecast.getDt());
-
-                            if (conflictRecord.isPresent()) {
-                                result.add(conflictRecord.get());
-                                log.info("Retrieved existing hourly forecast after constraint violation for dt={}",
-                                        forecast.getDt());
-                            } else {
-                                // 如果找不到，使用原始对象（不含ID）
-                                log.warn("Could not find existing record after constraint violation, using original data for dt={}",
-                                        forecast.getDt());
-                                result.add(forecast);
-                            }
-                        } catch (Exception e) {
-                            // 其他异常
-                            log.error("Error saving hourly forecast for dt={}: {}",
-                                    forecast.getDt(), e.getMessage());
-                            result.add(forecast); // 添加原始对象
-                        }
+                if (claim.getOwned().isEmpty()) {
+                    // 所需时段都在其他请求的获取中，等待其结果，由发起获取的请求负责写入
+                    List<WeatherForecast> shared = new ArrayList<>();
+                    for (RangeReservations.Reservation<List<WeatherForecast>> range : claim.getBorrowed()) {
+                        FutureUtils.join(range.getFuture()).stream()
+                                .filter(f -> gapDetector.slotOf(granularity, f.getDt()) >= range.getFirst()
+                                        && gapDetector.slotOf(granularity, f.getDt()) <= range.getLast())
+                                .forEach(shared::add);
                     }
-                    forecastData = result;
-                    log.info("Processed {} hourly forecast records with individual save", forecastData.size());
-                } catch (Exception e) {
-                    // 如果整个保存过程失败，记录错误但继续使用API数据
-                    log.error("Failed to save hourly forecast data: {}", e.getMessage(), e);
+                    fetchMetrics.recordHit(key);
+                    forecastData = mergeForecasts(granularity, stored, shared);
+                } else {
+                    // API只能从当前时段起返回，部分重叠时仍由本请求获取全部所需时段
+                    CompletableFuture<List<WeatherForecast>> fetch = fetcher.apply(gaps.slotsToFetch())
+                            .thenApply(fetched -> {
+                                fetched.forEach(f -> f.setIssuedAt(currentTime));
+                                return fetched;
+                            });
+                    List<WeatherForecast> fetched;
+                    try {
+                        fetched = FutureUtils.join(fetch);
+                    } catch (RuntimeException e) {
+                        claim.getOwned().forEach(range -> range.completeExceptionally(e));
+                        throw e;
+                    }
+                    // 释放前同步完成登记的区间，等待方得到本次结果而不是取消
+                    claim.getOwned().forEach(range -> range.complete(fetched));
+                    fetchMetrics.recordFetch(key);
+                    forecastData = mergeForecasts(granularity, stored, saveForecasts(key, tier, gaps, fetched, currentTime, refresh));
                 }
             } catch (Exception e) {
-                // 处理API调用或其他处理错误
-                log.error("Error fetching hourly forecast data: {}", e.getMessage(), e);
+                // 处理API调用或其他处理错误，使用已存储的数据
+                log.error("Error fetching {} forecast data: {}", tier.label, e.getMessage(), e);
+                stale = true;
+                if (stored.isEmpty()) {
+                    log.warn("No {} forecast data available in database, returning empty list", tier.label);
+                } else {
+                    log.info("Using {} existing {} forecast records as fallback", stored.size(), tier.label);
+                }
+            } finally {
+                claim.release();
+            }
+        }
 
-                // 尝试从数据库获取可用数据
-                forecastData = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                        latitude, longitude, WeatherForecast.TYPE_HOURLY, startTime, endTime);
+        List<WeatherForecast> inRange = forecastData.stream()
+                .filter(f -> f.getDt() >= startTime && f.getDt() <= endTime)
+                .collect(Collectors.toList());
+        return convertToForecastDTOs(inRange, stale);
+    }
 
-                if (forecastData.isEmpty()) {
-                    log.warn("No hourly forecast data available in database, returning empty list");
-                } else {
-                    log.info("Using {} existing hourly forecast records as fallback", forecastData.size());
+    /**
+     * 计算缺口，stored为null时视为没有已存储数据（刷新全部可返回时段）
+     */
+    private ForecastGapDetector.Gaps detectGaps(ForecastTier tier, long startTime, long endTime,
+                                                List<WeatherForecast> stored, long currentTime) {
+        List<Long> storedDts = stored == null ? Collections.emptyList()
+                : stored.stream().map(WeatherForecast::getDt).collect(Collectors.toList());
+        return gapDetector.detect(tier.granularity, startTime, endTime, storedDts, currentTime, tier.horizonSlots);
+    }
+
+    /**
+     * 上游API可返回范围内是否有发布时间超过有效时长的已存储数据
+     */
+    private boolean isExpired(ForecastTier tier, List<WeatherForecast> stored, long currentTime) {
+        long horizonStart = gapDetector.slotStart(tier.granularity, gapDetector.slotOf(tier.granularity, currentTime));
+        long oldestAllowed = currentTime - forecastMaxAgeSeconds(tier);
+        for (WeatherForecast forecast : stored) {
+            if (forecast.getDt() >= horizonStart
+                    && (forecast.getIssuedAt() == null || forecast.getIssuedAt() < oldestAllowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long forecastMaxAgeSeconds(ForecastTier tier) {
+        if (tier.forecastType == WeatherForecast.TYPE_HOURLY) {
+            return weatherConfig.getHourlyForecastMaxAgeMinutes() * 60;
+        } else if (tier.forecastType == WeatherForecast.TYPE_DAILY_16) {
+            return weatherConfig.getDailyForecastMaxAgeMinutes() * 60;
+        }
+        return weatherConfig.getClimateForecastMaxAgeMinutes() * 60;
+    }
+
+    /**
+     * 写入API返回的可补齐时段的数据，刷新时删除同一时间范围内被本次发布取代的旧记录
+     */
+    private List<WeatherForecast> saveForecasts(CoordinateKey key, ForecastTier tier, ForecastGapDetector.Gaps gaps,
+                                                List<WeatherForecast> fetched, long issuedAt, boolean refresh) {
+        List<WeatherForecast> missing = fetched.stream()
+                .filter(f -> gaps.getFetchable().contains(gapDetector.slotOf(tier.granularity, f.getDt())))
+                .collect(Collectors.toList());
+        missing.forEach(f -> f.setIssuedAt(issuedAt));
+        if (missing.isEmpty()) {
+            return missing;
+        }
+
+        try {
+            // 整批一条语句写入，已存在的记录由数据库直接更新
+            missing = upsertRepository.upsertForecasts(missing);
+            log.info("Saved {} {} forecast records for {} slots", missing.size(), tier.label, gaps.getFetchable().size());
+            if (refresh) {
+                int superseded = forecastRepository.deleteSupersededByKey(key, tier.forecastType,
+                        missing.get(0).getDt(), missing.get(missing.size() - 1).getDt(), issuedAt);
+                if (superseded > 0) {
+                    log.info("Removed {} superseded {} forecast records", superseded, tier.label);
+                }
+            }
+        } catch (Exception e) {
+            // 如果保存失败，记录错误但继续使用API数据
+            log.error("Failed to save {} forecast data: {}", tier.label, e.getMessage(), e);
+        }
+        return missing;
+    }
+
+    /**
+     * 在后台刷新上游API可返回范围内的全部预报，同一坐标同一类型同时只有一个刷新任务
+     */
+    private void scheduleForecastRefresh(CoordinateKey key, ForecastTier tier,
+                                         IntFunction<CompletableFuture<List<WeatherForecast>>> fetcher) {
+        String refreshKey = key.getValue() + ":" + tier.forecastType;
+        if (!pendingForecastRefreshes.add(refreshKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    long currentTime = System.currentTimeMillis() / 1000;
+                    long horizonEnd = horizonEnd(tier, currentTime);
+                    OpenWeatherMapRateLimiter.background(() ->
+                            getForecast(key, tier, currentTime, horizonEnd, true, fetcher));
+                } catch (RuntimeException e) {
+                    log.warn("Background {} forecast refresh failed for {}: {}", tier.label, key, e.getMessage());
+                } finally {
+                    pendingForecastRefreshes.remove(refreshKey);
                 }
+            });
+        } catch (TaskRejectedException e) {
+            pendingForecastRefreshes.remove(refreshKey);
+            log.warn("Background refresh queue is full, skipping {} forecast refresh for {}", tier.label, key);
+        }
+    }
+
+    /**
+     * 合并已存储数据与新写入的数据，同一时段以新数据为准，按时间升序返回
+     */
+    private List<WeatherForecast> mergeForecasts(ForecastGapDetector.Granularity granularity,
+                                                 List<WeatherForecast> stored, List<WeatherForecast> fresh) {
+        Set<Long> freshSlots = new HashSet<>();
+        for (WeatherForecast forecast : fresh) {
+            freshSlots.add(gapDetector.slotOf(granularity, forecast.getDt()));
+        }
+        List<WeatherForecast> merged = new ArrayList<>(stored.size() + fresh.size());
+        for (WeatherForecast forecast : stored) {
+            if (!freshSlots.contains(gapDetector.slotOf(granularity, forecast.getDt()))) {
+                merged.add(forecast);
             }
         }
-        return forecastData.stream().map(this::convertToForecastDTO).collect(Collectors.toList());
+        merged.addAll(fresh);
+        merged.sort(Comparator.comparing(WeatherForecast::getDt));
+        return merged;
     }
 
-    private List<WeatherForecast> fetchHourlyForecastFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang) {
+    private CompletableFuture<List<WeatherForecast>> fetchHourlyForecastFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang) {
         String url = UriComponentsBuilder.fromHttpUrl(weatherConfig.getHourlyForecastUrl())
                 .queryParam("lat", latitude)
                 .queryParam("lon", longitude)
@@ -583,11 +1049,14 @@ public class WeatherServiceImpl implements WeatherService {
                 .build()
                 .toUriString();
 
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        return weatherApiClient.getAsync(url).thenApply(body -> parseHourlyForecast(latitude, longitude, body));
+    }
+
+    private List<WeatherForecast> parseHourlyForecast(BigDecimal latitude, BigDecimal longitude, String body) {
         List<WeatherForecast> result = new ArrayList<>();
 
         try {
-            JsonNode root = objectMapper.readTree(response.getBody());
+            JsonNode root = objectMapper.readTree(body);
             // 从city下提取日出日落时间
             JsonNode city = root.path("city");
             Long sunrise = null;
@@ -681,103 +1150,12 @@ public class WeatherServiceImpl implements WeatherService {
         }
     }
 
-    private List<WeatherForecastDTO> getDailyForecast(BigDecimal latitude, BigDecimal longitude, Long startTime, Long endTime, String units, String lang, Boolean forceRefresh) {
-        int days = (int) ((endTime - startTime) / (24 * 60 * 60)) + 1;
-        int cnt = Math.min(days, 16); // 每天一条，最多16天
-        long dataCount = forecastRepository.countByCoordinatesAndTypeInTimeRange(
-                latitude, longitude, WeatherForecast.TYPE_DAILY_16, startTime, endTime);
-        int expectedCount = days; // 每天一条
-        List<WeatherForecast> forecastData;
-        // 100%完成度
-        boolean shouldUseCache = dataCount == expectedCount && (forceRefresh == null || !forceRefresh);
-        if (shouldUseCache) {
-            forecastData = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                    latitude, longitude, WeatherForecast.TYPE_DAILY_16, startTime, endTime);
-            log.info("Using {} cached 16天 daily forecast records", dataCount);
-        } else {
-            try {
-                forecastData = fetchDailyForecastFromApi(latitude, longitude, units, lang, cnt);
-                // 过滤出所需时间范围
-                forecastData = forecastData.stream()
-                        .filter(f -> f.getDt() >= startTime && f.getDt() <= endTime)
-                        .collect(Collectors.toList());
-                forecastData = deduplicateAndMergeForecasts(latitude, longitude, WeatherForecast.TYPE_DAILY_16, forecastData);
-
-                try {
-                    // 逐个保存，避免批量保存时的唯一约束冲突
-                    List<WeatherForecast> result = new ArrayList<>();
-                    for (WeatherForecast forecast : forecastData) {
-                        try {
-                            // 先检查是否已存在
-                            Optional<WeatherForecast> existing = forecastRepository.findByCoordinatesAndTypeAndDt(
-                                    latitude, longitude, WeatherForecast.TYPE_DAILY_16, forecast.getDt());
-
-                            if (existing.isPresent()) {
-                                // 如果存在，直接使用现有记录
-                                result.add(existing.get());
-                                log.debug("Using existing daily forecast record for dt={}", forecast.getDt());
-                            } else {
-                                // 如果不存在，保存新记录
-                                result.add(forecastRepository.save(forecast));
-                                log.debug("Saved new daily forecast record for dt={}", forecast.getDt());
-                            }
-                        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-                            // 处理唯一约束冲突
-                            log.warn("Constraint violation when saving daily forecast for dt={}: {}",
-                                    forecast.getDt(), e.getMessage());
-
-                            try {
-                                Thread.sleep(45);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                            }
-
-                            // 尝试查找冲突记录
-                            Optional<WeatherForecast> conflictRecord = forecastRepository.findByCoordinatesAndTypeAndDt(
-                                    latitude, longitude, WeatherForecast.TYPE_DAILY_16, forecast.getDt());
-
-                            if (conflictRecord.isPresent()) {
-                                result.add(conflictRecord.get());
-                                log.info("Retrieved existing daily forecast after constraint violation for dt={}",
-                                        forecast.getDt());
-                            } else {
-                                // 如果找不到，使用原始对象（不含ID）
-                                log.warn("Could not find existing record after constraint violation, using original data for dt={}",
-                                        forecast.getDt());
-                                result.add(forecast);
-                            }
-                        } catch (Exception e) {
-                            // 其他异常
-                            log.error("Error saving daily forecast for dt={}: {}",
-                                    forecast.getDt(), e.getMessage());
-                            result.add(forecast); // 添加原始对象
-                        }
-                    }
-                    forecastData = result;
-                    log.info("Processed {} daily forecast records with individual save", forecastData.size());
-                } catch (Exception e) {
-                    // 如果整个保存过程失败，记录错误但继续使用API数据
-                    log.error("Failed to save daily forecast data: {}", e.getMessage(), e);
-                }
-            } catch (Exception e) {
-                // 处理API调用或其他处理错误
-                log.error("Error fetching daily forecast data: {}", e.getMessage(), e);
-
-                // 尝试从数据库获取可用数据
-                forecastData = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                        latitude, longitude, WeatherForecast.TYPE_DAILY_16, startTime, endTime);
-
-                if (forecastData.isEmpty()) {
-                    log.warn("No daily forecast data available in database, returning empty list");
-                } else {
-                    log.info("Using {} existing daily forecast records as fallback", forecastData.size());
-                }
-            }
-        }
-        return forecastData.stream().map(this::convertToForecastDTO).collect(Collectors.toList());
+    private List<WeatherForecastDTO> getDailyForecast(CoordinateKey key, Long startTime, Long endTime, String units, String lang, Boolean forceRefresh) {
+        return getForecast(key, DAILY_TIER, startTime, endTime, forceRefresh,
+                days -> fetchDailyForecastFromApi(key.getLatitude(), key.getLongitude(), units, lang, days));
     }
 
-    private List<WeatherForecast> fetchDailyForecastFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang, int cnt) {
+    private CompletableFuture<List<WeatherForecast>> fetchDailyForecastFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang, int cnt) {
         cnt = Math.min(cnt, 16); // 官方最大16天
         String url = UriComponentsBuilder.fromHttpUrl(weatherConfig.getDailyForecastUrl())
                 .queryParam("lat", latitude)
@@ -789,10 +1167,13 @@ public class WeatherServiceImpl implements WeatherService {
                 .build()
                 .toUriString();
         log.info("调用16天API，实际请求URL: {}", url);
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        return weatherApiClient.getAsync(url).thenApply(body -> parseDailyForecast(latitude, longitude, body));
+    }
+
+    private List<WeatherForecast> parseDailyForecast(BigDecimal latitude, BigDecimal longitude, String body) {
         List<WeatherForecast> result = new ArrayList<>();
         try {
-            JsonNode root = objectMapper.readTree(response.getBody());
+            JsonNode root = objectMapper.readTree(body);
             JsonNode list = root.path("list");
             for (JsonNode item : list) {
                 WeatherForecast forecast = new WeatherForecast();
@@ -864,106 +1245,19 @@ public class WeatherServiceImpl implements WeatherService {
         }
     }
 
-    private List<WeatherForecastDTO> getClimateForecast(BigDecimal latitude, BigDecimal longitude, Long startTime, Long endTime, String units, String lang, Boolean forceRefresh) {
-        int days = (int) ((endTime - startTime) / (24 * 60 * 60)) + 1;
-        int cnt = days; // 每天1个整点
-        long dataCount = forecastRepository.countByCoordinatesAndTypeInTimeRange(
-                latitude, longitude, WeatherForecast.TYPE_CLIMATE_30, startTime, endTime);
-        int expectedCount = days;
-        List<WeatherForecast> forecastData;
-        // 100%完成度
-        boolean shouldUseCache = dataCount == expectedCount && (forceRefresh == null || !forceRefresh);
-        if (shouldUseCache) {
-            forecastData = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                    latitude, longitude, WeatherForecast.TYPE_CLIMATE_30, startTime, endTime);
-            log.info("Using {} cached 30天 climate forecast records", dataCount);
-        } else {
-            try {
-                forecastData = fetchClimateForecastFromApi(latitude, longitude, units, lang, cnt);
-                forecastData = forecastData.stream()
-                        .filter(f -> f.getDt() >= startTime && f.getDt() <= endTime)
-                        .filter(f -> {
-                            LocalDateTime dt = LocalDateTime.ofInstant(Instant.ofEpochSecond(f.getDt()), ZoneId.systemDefault());
-                            return dt.getHour() == 12;
-                        })
-                        .collect(Collectors.toList());
-                forecastData = deduplicateAndMergeForecasts(latitude, longitude, WeatherForecast.TYPE_CLIMATE_30, forecastData);
-
-                try {
-                    // 逐个保存，避免批量保存时的唯一约束冲突
-                    List<WeatherForecast> result = new ArrayList<>();
-                    for (WeatherForecast forecast : forecastData) {
-                        try {
-                            // 先检查是否已存在
-                            Optional<WeatherForecast> existing = forecastRepository.findByCoordinatesAndTypeAndDt(
-                                    latitude, longitude, WeatherForecast.TYPE_CLIMATE_30, forecast.getDt());
-
-                            if (existing.isPresent()) {
-                                // 如果存在，直接使用现有记录
-                                result.add(existing.get());
-                                log.debug("Using existing climate forecast record for dt={}", forecast.getDt());
-                            } else {
-                                // 如果不存在，保存新记录
-                                result.add(forecastRepository.save(forecast));
-                                log.debug("Saved new climate forecast record for dt={}", forecast.getDt());
-                            }
-                        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
-                            // 处理唯一约束冲突
-                            log.warn("Constraint violation when saving climate forecast for dt={}: {}",
-                                    forecast.getDt(), e.getMessage());
-
-                            try {
-                                Thread.sleep(45);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                            }
-
-                            // 尝试查找冲突记录
-                            Optional<WeatherForecast> conflictRecord = forecastRepository.findByCoordinatesAndTypeAndDt(
-                                    latitude, longitude, WeatherForecast.TYPE_CLIMATE_30, forecast.getDt());
-
-                            if (conflictRecord.isPresent()) {
-                                result.add(conflictRecord.get());
-                                log.info("Retrieved existing climate forecast after constraint violation for dt={}",
-                                        forecast.getDt());
-                            } else {
-                                // 如果找不到，使用原始对象（不含ID）
-                                log.warn("Could not find existing record after constraint violation, using original data for dt={}",
-                                        forecast.getDt());
-                                result.add(forecast);
-                            }
-                        } catch (Exception e) {
-                            // 其他异常
-                            log.error("Error saving climate forecast for dt={}: {}",
-                                    forecast.getDt(), e.getMessage());
-                            result.add(forecast); // 添加原始对象
-                        }
-                    }
-                    forecastData = result;
-                    log.info("Processed {} climate forecast records with individual save", forecastData.size());
-                } catch (Exception e) {
-                    // 如果整个保存过程失败，记录错误但继续使用API数据
-                    log.error("Failed to save climate forecast data: {}", e.getMessage(), e);
-                }
-            } catch (Exception e) {
-                // 处理API调用或其他处理错误
-                log.error("Error fetching climate forecast data: {}", e.getMessage(), e);
-
-                // 尝试从数据库获取可用数据
-                forecastData = forecastRepository.findByCoordinatesAndTypeInTimeRange(
-                        latitude, longitude, WeatherForecast.TYPE_CLIMATE_30, startTime, endTime);
-
-                if (forecastData.isEmpty()) {
-                    log.warn("No climate forecast data available in database, returning empty list");
-                } else {
-                    log.info("Using {} existing climate forecast records as fallback", forecastData.size());
-                }
-            }
-        }
-        return forecastData.stream().map(this::convertToForecastDTO).collect(Collectors.toList());
+    private List<WeatherForecastDTO> getClimateForecast(CoordinateKey key, Long startTime, Long endTime, String units, String lang, Boolean forceRefresh) {
+        return getForecast(key, CLIMATE_TIER, startTime, endTime, forceRefresh,
+                days -> fetchClimateForecastFromApi(key.getLatitude(), key.getLongitude(), units, lang, days)
+                        // 每天只保留12点的一条
+                        .thenApply(list -> list.stream()
+                                .filter(f -> {
+                                    LocalDateTime dt = LocalDateTime.ofInstant(Instant.ofEpochSecond(f.getDt()), ZoneId.systemDefault());
+                                    return dt.getHour() == 12;
+                                })
+                                .collect(Collectors.toList())));
     }
 
-    private List<WeatherForecast> fetchClimateForecastFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang, int cnt) {
+    private CompletableFuture<List<WeatherForecast>> fetchClimateForecastFromApi(BigDecimal latitude, BigDecimal longitude, String units, String lang, int cnt) {
         String url = UriComponentsBuilder.fromHttpUrl(weatherConfig.getClimateForecastUrl())
                 .queryParam("lat", latitude)
                 .queryParam("lon", longitude)
@@ -973,10 +1267,13 @@ public class WeatherServiceImpl implements WeatherService {
                 .queryParam("appid", weatherConfig.getApiKey())
                 .build()
                 .toUriString();
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        return weatherApiClient.getAsync(url).thenApply(body -> parseClimateForecast(latitude, longitude, body));
+    }
+
+    private List<WeatherForecast> parseClimateForecast(BigDecimal latitude, BigDecimal longitude, String body) {
         List<WeatherForecast> result = new ArrayList<>();
         try {
-            JsonNode root = objectMapper.readTree(response.getBody());
+            JsonNode root = objectMapper.readTree(body);
             JsonNode list = root.path("list");
             for (JsonNode item : list) {
                 WeatherForecast forecast = new WeatherForecast();
@@ -1037,7 +1334,7 @@ public class WeatherServiceImpl implements WeatherService {
         }
     }
 
-    private List<WeatherHistorical> fetchHistoricalWeatherFromApi(BigDecimal latitude, BigDecimal longitude, Long startTime, Long endTime, String units, String lang) {
+    private CompletableFuture<List<WeatherHistorical>> fetchHistoricalWeatherFromApi(BigDecimal latitude, BigDecimal longitude, Long startTime, Long endTime, String units, String lang) {
         String url = UriComponentsBuilder.fromHttpUrl(weatherConfig.getHistoricalWeatherUrl())
                 .queryParam("lat", latitude)
                 .queryParam("lon", longitude)
@@ -1049,11 +1346,14 @@ public class WeatherServiceImpl implements WeatherService {
                 .build()
                 .toUriString();
 
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        return weatherApiClient.getAsync(url).thenApply(body -> parseHistoricalWeather(latitude, longitude, body));
+    }
+
+    private List<WeatherHistorical> parseHistoricalWeather(BigDecimal latitude, BigDecimal longitude, String body) {
         List<WeatherHistorical> result = new ArrayList<>();
 
         try {
-            JsonNode root = objectMapper.readTree(response.getBody());
+            JsonNode root = objectMapper.readTree(body);
             JsonNode list = root.path("list");
 
             for (JsonNode item : list) {
@@ -1114,9 +1414,14 @@ public class WeatherServiceImpl implements WeatherService {
     }
 
     // 转换方法
-    private WeatherCurrentDTO convertToCurrentDTO(WeatherCurrent entity) {
+    private WeatherCurrentDTO convertToCurrentDTO(WeatherCurrent entity, WeatherRequestDTO request) {
         WeatherCurrentDTO dto = new WeatherCurrentDTO();
         BeanUtils.copyProperties(entity, dto);
+        // 数据按网格共享，返回请求方（地块）自身的坐标
+        dto.setLatitude(request.getLatitude());
+        dto.setLongitude(request.getLongitude());
+        dto.setFieldId(request.getFieldId());
+        dto.setStale(System.currentTimeMillis() / 1000 - entity.getDt() >= getMaxAgeCurrentWeather());
         // 设置可读的日期时间
         dto.setDt(entity.getDt());
 
@@ -1128,6 +1433,16 @@ public class WeatherServiceImpl implements WeatherService {
         return dto;
     }
 
+    private List<WeatherForecastDTO> convertToForecastDTOs(List<WeatherForecast> entities, boolean stale) {
+        List<WeatherForecastDTO> result = new ArrayList<>(entities.size());
+        for (WeatherForecast entity : entities) {
+            WeatherForecastDTO dto = convertToForecastDTO(entity);
+            dto.setStale(stale);
+            result.add(dto);
+        }
+        return result;
+    }
+
     private WeatherForecastDTO convertToForecastDTO(WeatherForecast entity) {
         WeatherForecastDTO dto = new WeatherForecastDTO();
         BeanUtils.copyProperties(entity, dto);
@@ -1136,12 +1451,27 @@ public class WeatherServiceImpl implements WeatherService {
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime();
         dto.setDtTxt(dateTime.format(dtFormatter));
+        dto.setResolution(entity.getForecastType() == WeatherForecast.TYPE_HOURLY ? "hour" : "day");
         return dto;
     }
 
-    private WeatherHistoricalDTO convertToHistoricalDTO(WeatherHistorical entity) {
+    /**
+     * 拼接结果按网格缓存、由网格内的请求共享，返回副本并填入请求方自身的坐标
+     */
+    private WeatherForecastDTO withRequestCoordinates(WeatherForecastDTO cached, WeatherRequestDTO request) {
+        WeatherForecastDTO dto = new WeatherForecastDTO();
+        BeanUtils.copyProperties(cached, dto);
+        dto.setLatitude(request.getLatitude());
+        dto.setLongitude(request.getLongitude());
+        return dto;
+    }
+
+    private WeatherHistoricalDTO convertToHistoricalDTO(WeatherHistorical entity, WeatherRequestDTO request) {
         WeatherHistoricalDTO dto = new WeatherHistoricalDTO();
         BeanUtils.copyProperties(entity, dto);
+        // 数据按网格共享，返回请求方（地块）自身的坐标
+        dto.setLatitude(request.getLatitude());
+        dto.setLongitude(request.getLongitude());
         // 设置可读的日期时间
         LocalDateTime dateTime = Instant.ofEpochSecond(entity.getDt())
                 .atZone(ZoneId.systemDefault())
@@ -1149,4 +1479,36 @@ public class WeatherServiceImpl implements WeatherService {
         dto.setDtTxt(dateTime.format(dtFormatter));
         return dto;
     }
+
+    /**
+     * 预报类型对应的API粒度和可返回范围
+     */
+    private static final class ForecastTier {
+
+        private final byte forecastType;
+        private final ForecastGapDetector.Granularity granularity;
+        private final int horizonSlots;
+        private final String label;
+
+        private ForecastTier(byte forecastType, ForecastGapDetector.Granularity granularity, int horizonSlots, String label) {
+            this.forecastType = forecastType;
+            this.granularity = granularity;
+            this.horizonSlots = horizonSlots;
+            this.label = label;
+        }
+    }
+
+    /**
+     * 历史数据读取结果：按时间排序的记录及获取失败的小时数
+     */
+    private static final class HistoricalLoad {
+
+        private final List<WeatherHistorical> rows;
+        private final int failedHours;
+
+        private HistoricalLoad(List<WeatherHistorical> rows, int failedHours) {
+            this.rows = rows;
+            this.failedHours = failedHours;
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package org.agro.util;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 熔断器
+ * CLOSED：正常放行，连续失败达到阈值后打开；
+ * OPEN：拒绝所有调用，打开时长结束后进入半开；
+ * HALF_OPEN：只放行一次试探调用，成功则关闭，失败则重新打开。
+ * 状态变化在锁内记录，释放锁后再按发生顺序通知回调，回调中可以再次调用熔断器
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final BiConsumer<State, State> transitionListener;
+
+    // 以下状态均由this保护
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+    private boolean probeInFlight;
+    private LocalDateTime lastTransitionAt;
+
+    private final Map<String, LongAdder> transitions = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    // 待通知的状态变化，同一时间只有一个线程负责通知
+    private final Queue<State[]> pendingTransitions = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean notifying = new AtomicBoolean();
+
+    /**
+     * @param failureThreshold   连续失败多少次后打开
+     * @param openMillis         打开状态持续时长（毫秒）
+     * @param transitionListener 状态变化回调（在锁外按发生顺序调用）
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, BiConsumer<State, State> transitionListener) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(1, openMillis);
+        this.transitionListener = transitionListener;
+    }
+
+    /**
+     * 判断是否放行本次调用，放行后必须调用 onSuccess / onFailure / onIgnored 之一
+     */
+    public boolean tryAcquire() {
+        boolean permitted;
+        synchronized (this) {
+            checkHalfOpen();
+            if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+                rejected.increment();
+                permitted = false;
+            } else {
+                if (state == State.HALF_OPEN) {
+                    probeInFlight = true;
+                }
+                permitted = true;
+            }
+        }
+        notifyTransitions();
+        return permitted;
+    }
+
+    public void onSuccess() {
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                transitionTo(State.CLOSED);
+            }
+        }
+        notifyTransitions();
+    }
+
+    public void onFailure() {
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                open();
+            } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+                open();
+            }
+        }
+        notifyTransitions();
+    }
+
+    /**
+     * 放行的调用未实际发出（如被限流），或结果不反映上游是否可用（如4xx），不影响熔断状态
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * 打开时长已结束时进入半开状态
+     */
+    public void halfOpenIfDue() {
+        synchronized (this) {
+            checkHalfOpen();
+        }
+        notifyTransitions();
+    }
+
+    public State getState() {
+        State current;
+        synchronized (this) {
+            checkHalfOpen();
+            current = state;
+        }
+        notifyTransitions();
+        return current;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        synchronized (this) {
+            result.put("state", state.name());
+            result.put("consecutiveFailures", consecutiveFailures);
+            result.put("lastTransitionAt", lastTransitionAt);
+        }
+        result.put("failureThreshold", failureThreshold);
+        result.put("openMillis", openMillis);
+        result.put("rejected", rejected.sum());
+        Map<String, Long> counts = new LinkedHashMap<>();
+        transitions.forEach((name, count) -> counts.put(name, count.sum()));
+        result.put("transitions", counts);
+        return result;
+    }
+
+    private void open() {
+        openedAtMillis = System.currentTimeMillis();
+        consecutiveFailures = 0;
+        transitionTo(State.OPEN);
+    }
+
+    private void checkHalfOpen() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAtMillis >= openMillis) {
+            transitionTo(State.HALF_OPEN);
+        }
+    }
+
+    /**
+     * 在锁内记录状态变化，由notifyTransitions在锁外通知
+     */
+    private void transitionTo(State newState) {
+        State oldState = state;
+        state = newState;
+        lastTransitionAt = LocalDateTime.now();
+        transitions.computeIfAbsent(oldState + "->" + newState, k -> new LongAdder()).increment();
+        if (transitionListener != null) {
+            pendingTransitions.add(new State[]{oldState, newState});
+        }
+    }
+
+    /**
+     * 按记录顺序通知状态变化，其他线程正在通知时由其一并处理
+     */
+    private void notifyTransitions() {
+        while (!pendingTransitions.isEmpty() && notifying.compareAndSet(false, true)) {
+            try {
+                State[] transition;
+                while ((transition = pendingTransitions.poll()) != null) {
+                    transitionListener.accept(transition[0], transition[1]);
+                }
+            } finally {
+                notifying.set(false);
+            }
+        }
+    }
+}
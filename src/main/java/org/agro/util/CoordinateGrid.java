@@ -0,0 +1,55 @@
+package org.agro.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 坐标网格
+ * 按固定分辨率（单位：度）将经纬度对齐到网格中心，生成 {@link CoordinateKey}
+ */
+public class CoordinateGrid {
+
+    // 天气表经纬度列为decimal(10,2)，网格中心超过两位小数时无法按原值存储和查回
+    private static final int MAX_SCALE = 2;
+
+    private final BigDecimal resolution;
+
+    public CoordinateGrid(BigDecimal resolution) {
+        if (resolution == null || resolution.signum() <= 0 || resolution.stripTrailingZeros().scale() > MAX_SCALE) {
+            throw new IllegalArgumentException("Grid resolution must be a positive multiple of 0.01: " + resolution);
+        }
+        this.resolution = resolution.stripTrailingZeros();
+    }
+
+    public BigDecimal getResolution() {
+        return resolution;
+    }
+
+    /**
+     * 计算坐标所在网格的键
+     */
+    public CoordinateKey keyOf(BigDecimal latitude, BigDecimal longitude) {
+        int latitudeIndex = index(latitude);
+        int longitudeIndex = index(longitude);
+        return new CoordinateKey(CoordinateKey.encode(latitudeIndex, longitudeIndex),
+                valueOf(latitudeIndex), valueOf(longitudeIndex),
+                latitude.stripTrailingZeros().toPlainString() + "," + longitude.stripTrailingZeros().toPlainString());
+    }
+
+    /**
+     * 由编码值还原网格键
+     */
+    public CoordinateKey keyOf(long value) {
+        BigDecimal latitude = valueOf(CoordinateKey.latitudeIndex(value));
+        BigDecimal longitude = valueOf(CoordinateKey.longitudeIndex(value));
+        return new CoordinateKey(value, latitude, longitude, latitude.toPlainString() + "," + longitude.toPlainString());
+    }
+
+    private int index(BigDecimal degrees) {
+        return degrees.divide(resolution, 0, RoundingMode.HALF_UP).intValueExact();
+    }
+
+    private BigDecimal valueOf(int index) {
+        return resolution.multiply(BigDecimal.valueOf(index)).setScale(Math.max(0, resolution.scale()), RoundingMode.UNNECESSARY);
+    }
+}
@@ -0,0 +1,84 @@
+package org.agro.util;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * 网格坐标键
+ * 经纬度按网格分辨率对齐后，将纬度、经度网格序号编码为一个long（高32位纬度，低32位经度），
+ * 相近地块落在同一网格时共享一次天气数据拉取和存储
+ */
+public final class CoordinateKey {
+
+    private final long value;
+    private final BigDecimal latitude;
+    private final BigDecimal longitude;
+    private final String origin;
+
+    CoordinateKey(long value, BigDecimal latitude, BigDecimal longitude, String origin) {
+        this.value = value;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.origin = origin;
+    }
+
+    /**
+     * 将纬度、经度网格序号编码为long
+     */
+    public static long encode(int latitudeIndex, int longitudeIndex) {
+        return ((long) latitudeIndex << 32) | (longitudeIndex & 0xFFFFFFFFL);
+    }
+
+    public static int latitudeIndex(long value) {
+        return (int) (value >> 32);
+    }
+
+    public static int longitudeIndex(long value) {
+        return (int) value;
+    }
+
+    /**
+     * 编码后的键值
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * 网格对齐后的纬度
+     */
+    public BigDecimal getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * 网格对齐后的经度
+     */
+    public BigDecimal getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * 生成该键的原始坐标（"纬度,经度"），不参与相等性比较
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return value == ((CoordinateKey) o).value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString() {
+        return latitude.toPlainString() + "," + longitude.toPlainString();
+    }
+}
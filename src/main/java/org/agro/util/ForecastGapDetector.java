@@ -0,0 +1,149 @@
+package org.agro.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 预报数据缺口检测
+ * 将时间范围按预报粒度划分为时段（小时级预报按整点小时，16天/30天预报按自然日），
+ * 根据已存储数据的时间戳计算缺失的时段，并区分其中哪些落在上游API当前可返回的范围内
+ */
+public class ForecastGapDetector {
+
+    /**
+     * 预报粒度
+     */
+    public enum Granularity {
+        HOURLY(3600L),
+        DAILY(86400L);
+
+        private final long seconds;
+
+        Granularity(long seconds) {
+            this.seconds = seconds;
+        }
+    }
+
+    private final ZoneId zone;
+
+    public ForecastGapDetector(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * 时间戳所在时段的编号（小时级为自纪元起的小时数，按天为自纪元起的天数）
+     */
+    public long slotOf(Granularity granularity, long epochSecond) {
+        if (granularity == Granularity.HOURLY) {
+            return Math.floorDiv(epochSecond, granularity.seconds);
+        }
+        return Instant.ofEpochSecond(epochSecond).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * 时段起始时间戳（含）
+     */
+    public long slotStart(Granularity granularity, long slot) {
+        if (granularity == Granularity.HOURLY) {
+            return slot * granularity.seconds;
+        }
+        return LocalDate.ofEpochDay(slot).atStartOfDay(zone).toEpochSecond();
+    }
+
+    /**
+     * 时段结束时间戳（含）
+     */
+    public long slotEnd(Granularity granularity, long slot) {
+        return slotStart(granularity, slot + 1) - 1;
+    }
+
+    /**
+     * 计算时间范围内的缺口
+     * 只逐个检查上游API可返回范围内的时段，范围外的缺失时段只计数，时间范围再长也不会逐时段遍历
+     *
+     * @param granularity  预报粒度
+     * @param startTime    开始时间戳（含）
+     * @param endTime      结束时间戳（含）
+     * @param storedDts    已存储数据的时间戳
+     * @param now          当前时间戳
+     * @param horizonSlots 上游API从当前时段起可返回的时段数
+     */
+    public Gaps detect(Granularity granularity, long startTime, long endTime, Collection<Long> storedDts,
+                       long now, int horizonSlots) {
+        long first = slotOf(granularity, startTime);
+        long last = slotOf(granularity, endTime);
+        Set<Long> stored = new HashSet<>();
+        for (Long dt : storedDts) {
+            long slot = slotOf(granularity, dt);
+            if (slot >= first && slot <= last) {
+                stored.add(slot);
+            }
+        }
+        long missingCount = Math.max(0, last - first + 1 - stored.size());
+
+        long firstFetchable = slotOf(granularity, now);
+        long lastFetchable = firstFetchable + Math.max(0, horizonSlots) - 1;
+        TreeSet<Long> fetchable = new TreeSet<>();
+        for (long slot = Math.max(first, firstFetchable); slot <= Math.min(last, lastFetchable); slot++) {
+            if (!stored.contains(slot)) {
+                fetchable.add(slot);
+            }
+        }
+        return new Gaps(granularity, missingCount, fetchable, firstFetchable);
+    }
+
+    /**
+     * 缺口检测结果
+     */
+    public static class Gaps {
+
+        private final Granularity granularity;
+        private final long missingCount;
+        private final TreeSet<Long> fetchable;
+        private final long firstFetchable;
+
+        private Gaps(Granularity granularity, long missingCount, TreeSet<Long> fetchable, long firstFetchable) {
+            this.granularity = granularity;
+            this.missingCount = missingCount;
+            this.fetchable = fetchable;
+            this.firstFetchable = firstFetchable;
+        }
+
+        public Granularity getGranularity() {
+            return granularity;
+        }
+
+        /**
+         * 缺失的时段数量（含上游API无法返回的时段）
+         */
+        public long getMissingCount() {
+            return missingCount;
+        }
+
+        /**
+         * 缺失且上游API可以返回的时段
+         */
+        public Set<Long> getFetchable() {
+            return fetchable;
+        }
+
+        /**
+         * 是否需要调用上游API
+         */
+        public boolean needsFetch() {
+            return !fetchable.isEmpty();
+        }
+
+        /**
+         * 覆盖全部可补齐缺口所需请求的时段数（从当前时段算起）
+         */
+        public int slotsToFetch() {
+            return fetchable.isEmpty() ? 0 : (int) (fetchable.last() - firstFetchable + 1);
+        }
+    }
+}
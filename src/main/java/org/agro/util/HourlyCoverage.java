@@ -0,0 +1,158 @@
+package org.agro.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按小时记录的数据覆盖情况
+ * 每个自然日（UTC）用一个24位掩码表示，第n位为1表示该日第n小时的数据已获取，
+ * 用于精确计算缺失的小时并合并为满足单次请求上限的连续区间
+ */
+public class HourlyCoverage {
+
+    public static final int HOURS_PER_DAY = 24;
+    public static final int FULL_DAY_MASK = (1 << HOURS_PER_DAY) - 1;
+
+    private static final long SECONDS_PER_HOUR = 3600L;
+
+    private final Map<Long, Integer> masks = new HashMap<>();
+
+    /**
+     * 时间戳所在小时的编号（自纪元起的小时数）
+     */
+    public static long hourOf(long epochSecond) {
+        return Math.floorDiv(epochSecond, SECONDS_PER_HOUR);
+    }
+
+    /**
+     * 小时编号所在的自然日（自纪元起的天数，UTC）
+     */
+    public static long dayOf(long hour) {
+        return Math.floorDiv(hour, HOURS_PER_DAY);
+    }
+
+    /**
+     * 合并一天的掩码
+     */
+    public void addDay(long epochDay, int mask) {
+        masks.merge(epochDay, mask & FULL_DAY_MASK, (a, b) -> a | b);
+    }
+
+    /**
+     * 标记某小时已覆盖
+     */
+    public void mark(long hour) {
+        addDay(dayOf(hour), 1 << Math.floorMod(hour, HOURS_PER_DAY));
+    }
+
+    /**
+     * API没有返回数据时也视为已获取的最后一个小时：早于当前小时settleHours小时及更早的时段，
+     * 近期的小时数据可能尚未入库，仍需再次请求
+     */
+    public static long lastSettledHour(long currentTime, int settleHours) {
+        return hourOf(currentTime) - Math.max(0, settleHours);
+    }
+
+    /**
+     * 标记[firstHour, lastHour]内不晚于lastSettledHour的小时为已覆盖
+     */
+    public void markSettled(long firstHour, long lastHour, long lastSettledHour) {
+        for (long hour = firstHour; hour <= Math.min(lastHour, lastSettledHour); hour++) {
+            mark(hour);
+        }
+    }
+
+    public boolean isCovered(long hour) {
+        Integer mask = masks.get(dayOf(hour));
+        return mask != null && (mask & (1 << Math.floorMod(hour, HOURS_PER_DAY))) != 0;
+    }
+
+    /**
+     * 各自然日的掩码
+     */
+    public Map<Long, Integer> getMasks() {
+        return Collections.unmodifiableMap(masks);
+    }
+
+    /**
+     * 计算[firstHour, lastHour]内缺失的小时，相邻缺失合并为连续区间，每个区间不超过maxHours小时
+     */
+    public List<HourRange> missingRanges(long firstHour, long lastHour, int maxHours) {
+        List<HourRange> result = new ArrayList<>();
+        long rangeStart = -1;
+        for (long hour = firstHour; hour <= lastHour; hour++) {
+            if (isCovered(hour)) {
+                if (rangeStart >= 0) {
+                    split(rangeStart, hour - 1, maxHours, result);
+                    rangeStart = -1;
+                }
+            } else if (rangeStart < 0) {
+                rangeStart = hour;
+            }
+        }
+        if (rangeStart >= 0) {
+            split(rangeStart, lastHour, maxHours, result);
+        }
+        return result;
+    }
+
+    /**
+     * 将[firstHour, lastHour]整体拆分为不超过maxHours小时的区间
+     */
+    public static List<HourRange> ranges(long firstHour, long lastHour, int maxHours) {
+        List<HourRange> result = new ArrayList<>();
+        if (firstHour <= lastHour) {
+            split(firstHour, lastHour, maxHours, result);
+        }
+        return result;
+    }
+
+    private static void split(long firstHour, long lastHour, int maxHours, List<HourRange> result) {
+        int step = Math.max(1, maxHours);
+        for (long start = firstHour; start <= lastHour; start += step) {
+            result.add(new HourRange(start, Math.min(lastHour, start + step - 1)));
+        }
+    }
+
+    /**
+     * 连续的小时区间（含两端）
+     */
+    public static class HourRange {
+
+        private final long firstHour;
+        private final long lastHour;
+
+        public HourRange(long firstHour, long lastHour) {
+            this.firstHour = firstHour;
+            this.lastHour = lastHour;
+        }
+
+        public long getFirstHour() {
+            return firstHour;
+        }
+
+        public long getLastHour() {
+            return lastHour;
+        }
+
+        public long getStartTime() {
+            return firstHour * SECONDS_PER_HOUR;
+        }
+
+        public long getEndTime() {
+            return lastHour * SECONDS_PER_HOUR;
+        }
+
+        public int hours() {
+            return (int) (lastHour - firstHour + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + getStartTime() + ", " + getEndTime() + "]";
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.agro.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 区间请求合并工具
+ * 按key登记进行中的区间获取（区间以整数编号表示，如小时编号），同一key下已登记的区间互不重叠；
+ * 新的请求与已登记区间重叠的部分等待其结果，其余部分由该请求登记后自行获取，
+ * 获取结果写入完成后由登记方释放
+ */
+public class RangeReservations<K, V> {
+
+    // 各key下进行中的区间，按起始编号排序
+    private final Map<K, TreeMap<Long, Reservation<V>>> inFlight = new HashMap<>();
+
+    /**
+     * 登记[first, last]区间
+     * 返回结果中owned为本次登记、需要调用方获取并完成的区间，borrowed为已由其他请求获取中的重叠区间
+     */
+    public synchronized Claim<V> claim(K key, long first, long last) {
+        TreeMap<Long, Reservation<V>> ranges = inFlight.computeIfAbsent(key, k -> new TreeMap<>());
+        List<Reservation<V>> owned = new ArrayList<>();
+        List<Reservation<V>> borrowed = new ArrayList<>();
+
+        Long from = ranges.floorKey(first);
+        NavigableMap<Long, Reservation<V>> candidates = ranges.subMap(from != null ? from : first, true, last, true);
+        long cursor = first;
+        for (Reservation<V> existing : new ArrayList<>(candidates.values())) {
+            if (existing.last < cursor) {
+                continue;
+            }
+            if (existing.first > cursor) {
+                owned.add(reserve(ranges, cursor, existing.first - 1));
+            }
+            borrowed.add(existing);
+            cursor = existing.last + 1;
+        }
+        if (cursor <= last) {
+            owned.add(reserve(ranges, cursor, last));
+        }
+        if (ranges.isEmpty()) {
+            inFlight.remove(key);
+        }
+        return new Claim<>(owned, borrowed, () -> release(key, owned));
+    }
+
+    /**
+     * 当前登记中的区间数量
+     */
+    public synchronized int inFlightCount() {
+        int count = 0;
+        for (TreeMap<Long, Reservation<V>> ranges : inFlight.values()) {
+            count += ranges.size();
+        }
+        return count;
+    }
+
+    private Reservation<V> reserve(TreeMap<Long, Reservation<V>> ranges, long first, long last) {
+        Reservation<V> reservation = new Reservation<>(first, last);
+        ranges.put(first, reservation);
+        return reservation;
+    }
+
+    private void release(K key, List<Reservation<V>> owned) {
+        synchronized (this) {
+            TreeMap<Long, Reservation<V>> ranges = inFlight.get(key);
+            if (ranges != null) {
+                owned.forEach(reservation -> ranges.remove(reservation.first, reservation));
+                if (ranges.isEmpty()) {
+                    inFlight.remove(key);
+                }
+            }
+        }
+        // 未完成就释放的区间（获取前出错等）以异常结束，避免等待方一直阻塞
+        owned.forEach(reservation -> reservation.future.completeExceptionally(
+                new CancellationException("Range [" + reservation.first + ", " + reservation.last + "] released before completion")));
+    }
+
+    /**
+     * 登记的区间（含两端）
+     */
+    public static class Reservation<V> {
+
+        private final long first;
+        private final long last;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private Reservation(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        public long getFirst() {
+            return first;
+        }
+
+        public long getLast() {
+            return last;
+        }
+
+        /**
+         * 区间的获取结果
+         */
+        public CompletableFuture<V> getFuture() {
+            return future;
+        }
+
+        /**
+         * 以获取结果完成区间，应在释放前调用
+         */
+        public void complete(V value) {
+            future.complete(value);
+        }
+
+        /**
+         * 以获取失败完成区间，等待该区间的请求得到同一异常
+         */
+        public void completeExceptionally(Throwable e) {
+            future.completeExceptionally(e);
+        }
+
+        /**
+         * 以异步获取的结果完成区间，等待该区间的请求得到同一结果；
+         * 调用方应等待区间的Future完成后再释放，否则回调执行前的释放会使区间以取消结束
+         */
+        public void completeWith(CompletableFuture<? extends V> result) {
+            result.whenComplete((value, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(value);
+                }
+            });
+        }
+    }
+
+    /**
+     * 一次登记的结果
+     */
+    public static class Claim<V> {
+
+        private final List<Reservation<V>> owned;
+        private final List<Reservation<V>> borrowed;
+        private final Runnable releaser;
+
+        private Claim(List<Reservation<V>> owned, List<Reservation<V>> borrowed, Runnable releaser) {
+            this.owned = Collections.unmodifiableList(owned);
+            this.borrowed = Collections.unmodifiableList(borrowed);
+            this.releaser = releaser;
+        }
+
+        /**
+         * 本次登记、需要调用方获取的区间
+         */
+        public List<Reservation<V>> getOwned() {
+            return owned;
+        }
+
+        /**
+         * 与其他请求重叠、等待其结果的区间
+         */
+        public List<Reservation<V>> getBorrowed() {
+            return borrowed;
+        }
+
+        /**
+         * 释放本次登记的区间，应在获取结果写入完成后调用
+         */
+        public void release() {
+            releaser.run();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.agro.util;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 哈希时间轮
+ * 定时任务按到期时间落入对应的槽，每次推进只检查经过的槽，登记和到期都是常数时间；
+ * 到期时间超过一圈的任务留在槽中，等轮转到期时再执行。
+ * 推进应由单个线程定时调用，登记可在任意线程进行
+ */
+public class TimerWheel {
+
+    private final long tickMillis;
+    private final Queue<Timeout>[] buckets;
+    private volatile long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(int bucketCount, long tickMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.buckets = new Queue[Math.max(1, bucketCount)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = System.currentTimeMillis() / this.tickMillis;
+    }
+
+    /**
+     * 登记在deadlineMillis（毫秒时间戳）之后执行的任务
+     * 已过期的任务放入当前槽，下次推进时执行
+     */
+    public void schedule(long deadlineMillis, Runnable task) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        buckets[(int) Math.floorMod(tick, (long) buckets.length)].add(new Timeout(deadlineMillis, task));
+    }
+
+    /**
+     * 推进到nowMillis，执行经过的槽中已到期的任务，返回执行数量
+     * 落后超过一圈时每个槽只检查一次
+     */
+    public synchronized int advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        long ticks = Math.min(targetTick - currentTick + 1, buckets.length);
+        int expired = 0;
+        for (long i = 0; i < ticks; i++) {
+            Iterator<Timeout> iterator = buckets[(int) Math.floorMod(currentTick + i, (long) buckets.length)].iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.deadlineMillis <= nowMillis) {
+                    iterator.remove();
+                    timeout.task.run();
+                    expired++;
+                }
+            }
+        }
+        if (targetTick >= currentTick) {
+            currentTick = targetTick;
+        }
+        return expired;
+    }
+
+    /**
+     * 尚未执行的任务数量
+     */
+    public int size() {
+        int size = 0;
+        for (Queue<Timeout> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+
+    private static class Timeout {
+        private final long deadlineMillis;
+        private final Runnable task;
+
+        private Timeout(long deadlineMillis, Runnable task) {
+            this.deadlineMillis = deadlineMillis;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.agro.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.agro.entity.RevokedToken;
+import org.agro.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    // 模拟数据库中的吊销记录，包括其他节点写入的记录
+    private final Map<String, RevokedToken> rows = new HashMap<>();
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setUp() {
+        RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+        when(repository.save(any(RevokedToken.class))).thenAnswer(invocation -> {
+            RevokedToken token = invocation.getArgument(0);
+            rows.put(token.getTokenId(), token);
+            return token;
+        });
+        when(repository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+        when(repository.findActiveTokenIds(any())).thenAnswer(invocation -> Collections.emptyList());
+        when(repository.findActiveTokenIdsRevokedSince(any(), any())).thenAnswer(invocation -> {
+            LocalDateTime since = invocation.getArgument(0);
+            List<String> ids = new ArrayList<>();
+            rows.forEach((id, token) -> {
+                if (!token.getRevokedAt().isBefore(since)) {
+                    ids.add(id);
+                }
+            });
+            return ids;
+        });
+        JwtUtils jwtUtils = mock(JwtUtils.class);
+        when(jwtUtils.getJwtExpirationMs()).thenReturn(3_600_000L);
+        service = new TokenRevocationService(repository, jwtUtils);
+        service.init();
+    }
+
+    @Test
+    void revokedTokenIdIsRejected() {
+        service.revokeToken("jti-1", 1L, LocalDateTime.now().plusHours(1));
+        assertTrue(service.isRevoked(claims("jti-1", "alice", new Date())));
+        assertFalse(service.isRevoked(claims("jti-2", "alice", new Date())));
+    }
+
+    @Test
+    void userRevocationIsRecordedRoundedUpToWholeSeconds() {
+        LocalDateTime before = LocalDateTime.now();
+        service.revokeAllForUser(1L, "alice");
+
+        LocalDateTime revokedAt = rows.get("user:alice").getRevokedAt();
+        assertEquals(0, revokedAt.getNano());
+        assertFalse(revokedAt.isBefore(before));
+    }
+
+    @Test
+    void tokensIssuedUpToTheRevocationSecondAreRejected() {
+        service.revokeAllForUser(1L, "alice");
+        LocalDateTime revokedAt = rows.get("user:alice").getRevokedAt();
+
+        assertTrue(service.isRevoked(claims("jti-1", "alice", toDate(revokedAt.minusSeconds(1)))));
+        // 与吊销时间同一秒签发的令牌同样视为已吊销
+        assertTrue(service.isRevoked(claims("jti-1", "alice", toDate(revokedAt))));
+        assertFalse(service.isRevoked(claims("jti-1", "alice", toDate(revokedAt.plusSeconds(1)))));
+        assertFalse(service.isRevoked(claims("jti-1", "bob", toDate(revokedAt.minusSeconds(1)))));
+    }
+
+    @Test
+    void tokenIssuedEarlierInTheSameSecondAsAMillisecondRevocationIsRejected() {
+        // 其他节点按毫秒记录的吊销时间
+        LocalDateTime revokedAt = LocalDateTime.now().withNano(700_000_000);
+        putRow("user:alice", revokedAt);
+        service.refreshFilter();
+
+        // 吊销前同一秒内签发的令牌，签发时间截断到秒
+        Date issuedAt = toDate(revokedAt.truncatedTo(ChronoUnit.SECONDS));
+        assertTrue(service.isRevoked(claims("jti-1", "alice", issuedAt)));
+    }
+
+    @Test
+    void refreshPicksUpRevocationsFromOtherNodes() {
+        Claims claims = claims("jti-remote", "alice", new Date());
+        assertFalse(service.isRevoked(claims));
+
+        // 其他节点写入数据库，本节点过滤器尚未包含
+        putRow("jti-remote", LocalDateTime.now());
+        assertFalse(service.isRevoked(claims));
+
+        service.refreshFilter();
+        assertTrue(service.isRevoked(claims));
+    }
+
+    @Test
+    void refreshDropsStaleConfirmations() {
+        LocalDateTime first = LocalDateTime.now().minusMinutes(5);
+        putRow("user:alice", first);
+        service.refreshFilter();
+        Claims claims = claims("jti-1", "alice", toDate(first.plusMinutes(1)));
+        assertFalse(service.isRevoked(claims));
+
+        // 其他节点再次吊销该用户的全部令牌
+        putRow("user:alice", LocalDateTime.now());
+        service.refreshFilter();
+        assertTrue(service.isRevoked(claims));
+    }
+
+    private void putRow(String id, LocalDateTime revokedAt) {
+        RevokedToken token = new RevokedToken();
+        token.setTokenId(id);
+        token.setRevokedAt(revokedAt);
+        token.setExpiresAt(LocalDateTime.now().plusHours(1));
+        rows.put(id, token);
+    }
+
+    private static Claims claims(String id, String subject, Date issuedAt) {
+        Claims claims = Jwts.claims();
+        claims.setId(id);
+        claims.setSubject(subject);
+        claims.setIssuedAt(issuedAt);
+        return claims;
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,106 @@
+package org.agro.service;
+
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.event.SystemConfigChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OpenWeatherMapRateLimiterTest {
+
+    private SystemConfigService systemConfigService;
+    private OpenWeatherMapRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        systemConfigService = mock(SystemConfigService.class);
+        when(systemConfigService.getApiRateLimitPerMinute()).thenReturn(10);
+        when(systemConfigService.getApiDailyQuota()).thenReturn(1000);
+        OpenWeatherMapConfig weatherConfig = mock(OpenWeatherMapConfig.class);
+        when(weatherConfig.getInteractiveReserveRatio()).thenReturn(0.2);
+        limiter = new OpenWeatherMapRateLimiter(systemConfigService, weatherConfig);
+    }
+
+    @Test
+    void interactiveCallsMayUseTheWholeBucket() {
+        assertEquals(10, acquireAll(limiter::tryAcquire));
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    void backgroundCallsLeaveTheInteractiveReserve() {
+        // 10个令牌中预留20%给交互请求
+        assertEquals(8, acquireAll(() -> OpenWeatherMapRateLimiter.background(limiter::tryAcquire)));
+        assertEquals(2, acquireAll(limiter::tryAcquire));
+        assertEquals(1L, limiter.stats().get("rejectedBackground"));
+        assertEquals(1L, limiter.stats().get("rejectedInteractive"));
+    }
+
+    @Test
+    void dailyQuotaAppliesAcrossTheBucket() {
+        when(systemConfigService.getApiRateLimitPerMinute()).thenReturn(100);
+        when(systemConfigService.getApiDailyQuota()).thenReturn(5);
+        assertEquals(5, acquireAll(limiter::tryAcquire));
+        assertEquals(5L, limiter.stats().get("usedToday"));
+    }
+
+    @Test
+    void backgroundRestoresThePreviousPriority() {
+        OpenWeatherMapRateLimiter.background(() -> {
+            OpenWeatherMapRateLimiter.background(() -> null);
+            // 嵌套调用结束后仍为后台优先级
+            assertEquals(8, acquireAll(limiter::tryAcquire));
+            return null;
+        });
+        // 退出后恢复为交互优先级，可以使用预留额度
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void withCurrentPriorityCarriesBackgroundToOtherThreads() {
+        OpenWeatherMapRateLimiter.background(() -> acquireAll(limiter::tryAcquire));
+
+        Supplier<Boolean> wrapped = OpenWeatherMapRateLimiter.background(
+                () -> OpenWeatherMapRateLimiter.withCurrentPriority(limiter::tryAcquire));
+        assertFalse(CompletableFuture.supplyAsync(wrapped).join());
+
+        Supplier<Boolean> interactive = OpenWeatherMapRateLimiter.withCurrentPriority(limiter::tryAcquire);
+        assertTrue(CompletableFuture.supplyAsync(interactive).join());
+    }
+
+    @Test
+    void loweredLimitIsAppliedAfterConfigChange() {
+        assertTrue(limiter.tryAcquire());
+        when(systemConfigService.getApiRateLimitPerMinute()).thenReturn(3);
+        limiter.onSystemConfigChanged(new SystemConfigChangedEvent(SystemConfigService.API_RATE_LIMIT_PER_MINUTE_KEY, "3"));
+
+        assertEquals(3, acquireAll(limiter::tryAcquire));
+        assertEquals(3, limiter.stats().get("perMinute"));
+    }
+
+    @Test
+    void unrelatedConfigChangeKeepsLimits() {
+        assertTrue(limiter.tryAcquire());
+        when(systemConfigService.getApiRateLimitPerMinute()).thenReturn(3);
+        limiter.onSystemConfigChanged(new SystemConfigChangedEvent("other.key", "x"));
+
+        assertEquals(10, limiter.stats().get("perMinute"));
+    }
+
+    /**
+     * 连续获取直到被拒绝，返回成功次数
+     */
+    private static int acquireAll(Supplier<Boolean> acquire) {
+        int acquired = 0;
+        while (acquire.get()) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,101 @@
+package org.agro.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryVerificationCodeStoreTest {
+
+    private static final String EMAIL = "a@example.com";
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final InMemoryVerificationCodeStore store = new InMemoryVerificationCodeStore();
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void codeCanBeUsedOnlyOnce() {
+        store.save(EMAIL, "123456", TTL);
+        assertTrue(store.consume(EMAIL, "123456", 5));
+        assertFalse(store.consume(EMAIL, "123456", 5));
+    }
+
+    @Test
+    void expiredCodeIsRejected() {
+        store.save(EMAIL, "123456", Duration.ofMillis(-1));
+        assertFalse(store.consume(EMAIL, "123456", 5));
+    }
+
+    @Test
+    void codeIsInvalidatedAfterMaxFailedAttempts() {
+        store.save(EMAIL, "123456", TTL);
+        for (int i = 0; i < 4; i++) {
+            assertFalse(store.consume(EMAIL, "000000", 5));
+        }
+        assertTrue(store.consume(EMAIL, "123456", 5));
+
+        store.save(EMAIL, "654321", TTL);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(store.consume(EMAIL, "000000", 5));
+        }
+        assertFalse(store.consume(EMAIL, "654321", 5));
+    }
+
+    @Test
+    void newCodeResetsFailedAttempts() {
+        store.save(EMAIL, "123456", TTL);
+        for (int i = 0; i < 4; i++) {
+            store.consume(EMAIL, "000000", 5);
+        }
+        store.save(EMAIL, "654321", TTL);
+        for (int i = 0; i < 4; i++) {
+            store.consume(EMAIL, "000000", 5);
+        }
+        assertTrue(store.consume(EMAIL, "654321", 5));
+    }
+
+    @Test
+    void concurrentUsesOfTheSameCodeSucceedOnce() throws Exception {
+        store.save(EMAIL, "123456", TTL);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return store.consume(EMAIL, "123456", 5);
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            assertEquals(1, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendIntervalIsEnforced() {
+        assertTrue(store.tryAcquireSend(EMAIL, Duration.ofMinutes(1)));
+        assertFalse(store.tryAcquireSend(EMAIL, Duration.ofMinutes(1)));
+        assertTrue(store.tryAcquireSend("b@example.com", Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,117 @@
+package org.agro.service.impl;
+
+import org.agro.config.OpenWeatherMapConfig;
+import org.agro.dto.WeatherCurrentDTO;
+import org.agro.dto.WeatherRequestDTO;
+import org.agro.entity.WeatherCurrent;
+import org.agro.entity.WeatherCurrentLatest;
+import org.agro.event.WeatherCircuitStateChangedEvent;
+import org.agro.exception.CircuitOpenException;
+import org.agro.repository.WeatherCurrentLatestRepository;
+import org.agro.repository.WeatherCurrentRepository;
+import org.agro.repository.WeatherForecastRepository;
+import org.agro.repository.WeatherHistoricalCoverageRepository;
+import org.agro.repository.WeatherHistoricalRepository;
+import org.agro.repository.WeatherUpsertRepository;
+import org.agro.service.OpenWeatherMapClient;
+import org.agro.service.SystemConfigService;
+import org.agro.service.WeatherCurrentCache;
+import org.agro.service.WeatherFetchMetrics;
+import org.agro.util.CircuitBreaker;
+import org.agro.util.CoordinateGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 熔断器半开时的试探刷新
+ */
+class WeatherServiceImplCircuitProbeTest {
+
+    private OpenWeatherMapClient weatherApiClient;
+    private WeatherServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        weatherApiClient = mock(OpenWeatherMapClient.class);
+        when(weatherApiClient.getCircuitState()).thenReturn(CircuitBreaker.State.HALF_OPEN);
+        // 试探被熔断器或限流拒绝，熔断器保持半开
+        when(weatherApiClient.getAsync(anyString())).thenAnswer(invocation ->
+                CompletableFuture.failedFuture(new CircuitOpenException("rejected")));
+
+        OpenWeatherMapConfig weatherConfig = mock(OpenWeatherMapConfig.class);
+        when(weatherConfig.getCurrentWeatherUrl()).thenReturn("https://api.example.com/data/2.5/weather");
+
+        SystemConfigService systemConfigService = mock(SystemConfigService.class);
+        when(systemConfigService.getDataFetchInterval()).thenReturn(30);
+
+        // 数据库中有一条过期的实时天气
+        WeatherCurrent stored = new WeatherCurrent();
+        stored.setLatitude(new BigDecimal("31.23"));
+        stored.setLongitude(new BigDecimal("121.47"));
+        stored.setDt(System.currentTimeMillis() / 1000 - 7200);
+        WeatherCurrentLatest latest = new WeatherCurrentLatest();
+        latest.setCurrent(stored);
+        WeatherCurrentLatestRepository currentLatestRepository = mock(WeatherCurrentLatestRepository.class);
+        when(currentLatestRepository.findByKey(any())).thenReturn(Optional.of(latest));
+
+        // 后台任务在提交线程上直接执行
+        ThreadPoolTaskExecutor refreshExecutor = mock(ThreadPoolTaskExecutor.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(refreshExecutor).execute(any(Runnable.class));
+
+        service = new WeatherServiceImpl(weatherApiClient, weatherConfig,
+                mock(WeatherCurrentRepository.class), currentLatestRepository,
+                mock(WeatherForecastRepository.class), mock(WeatherHistoricalRepository.class),
+                mock(WeatherHistoricalCoverageRepository.class), mock(WeatherUpsertRepository.class),
+                systemConfigService, mock(WeatherCurrentCache.class), new CoordinateGrid(new BigDecimal("0.01")),
+                mock(WeatherFetchMetrics.class), refreshExecutor, mock(ThreadPoolTaskExecutor.class));
+    }
+
+    @Test
+    void halfOpenWithoutPendingEntriesProbesOnNextStaleRequest() {
+        service.onCircuitStateChanged(new WeatherCircuitStateChangedEvent(
+                CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN));
+        verify(weatherApiClient, never()).getAsync(anyString());
+
+        WeatherCurrentDTO result = service.getCurrentWeatherAsync(request()).join();
+
+        assertTrue(result.getStale());
+        verify(weatherApiClient, times(1)).getAsync(anyString());
+    }
+
+    @Test
+    void rejectedProbeIsRetriedByLaterRequests() {
+        service.getCurrentWeatherAsync(request()).join();
+        service.getCurrentWeatherAsync(request()).join();
+
+        verify(weatherApiClient, times(2)).getAsync(anyString());
+    }
+
+    @Test
+    void openCircuitDoesNotProbe() {
+        when(weatherApiClient.getCircuitState()).thenReturn(CircuitBreaker.State.OPEN);
+
+        service.getCurrentWeatherAsync(request()).join();
+
+        verify(weatherApiClient, never()).getAsync(anyString());
+    }
+
+    private static WeatherRequestDTO request() {
+        WeatherRequestDTO request = new WeatherRequestDTO();
+        request.setLatitude(new BigDecimal("31.23"));
+        request.setLongitude(new BigDecimal("121.47"));
+        return request;
+    }
+}
@@ -0,0 +1,96 @@
+package org.agro.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("a"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void insertedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("token-" + i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("token-" + i), "token-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("token-" + i);
+        }
+        int falsePositives = 0;
+        int probes = 100000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 目标1%，留出统计波动的余量
+        assertTrue(falsePositives < probes * 0.02, "误判" + falsePositives + "次");
+    }
+
+    @Test
+    void similarPrefixedIdsAreDistinguished() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        filter.put("user:alice");
+        assertTrue(filter.mightContain("user:alice"));
+        assertFalse(filter.mightContain("user:alicf"));
+        assertFalse(filter.mightContain("alice"));
+    }
+
+    @Test
+    void degenerateParametersStillWork() {
+        BloomFilter filter = new BloomFilter(0, 2.0);
+        filter.put("a");
+        assertTrue(filter.mightContain("a"));
+
+        BloomFilter strict = new BloomFilter(10, 0.0);
+        strict.put("b");
+        assertTrue(strict.mightContain("b"));
+    }
+
+    @Test
+    void concurrentPutsAreAllVisible() throws Exception {
+        BloomFilter filter = new BloomFilter(40000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        filter.put(thread + "-" + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 10000; i++) {
+                assertTrue(filter.mightContain(t + "-" + i));
+            }
+        }
+    }
+}
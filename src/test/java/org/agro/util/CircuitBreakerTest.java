@@ -0,0 +1,100 @@
+package org.agro.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterThresholdAndClosesAfterSuccessfulProbe() throws Exception {
+        List<String> transitions = new ArrayList<>();
+        CircuitBreaker breaker = new CircuitBreaker(2, 50, (from, to) -> transitions.add(from + "->" + to));
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(80);
+        assertTrue(breaker.tryAcquire());
+        // 半开状态只放行一次试探
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void ignoredResultsNeitherCountNorReset() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000, null);
+        breaker.onFailure();
+        breaker.onIgnored();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void ignoredProbeKeepsHalfOpenAndAllowsAnotherProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 20, null);
+        breaker.onFailure();
+        Thread.sleep(40);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void listenerRunsWithoutHoldingTheBreakerLock() throws Exception {
+        CircuitBreaker[] holder = new CircuitBreaker[1];
+        List<Boolean> lockHeld = new ArrayList<>();
+        List<CircuitBreaker.State> observedFromOtherThread = new ArrayList<>();
+        holder[0] = new CircuitBreaker(1, 60_000, (from, to) -> {
+            lockHeld.add(Thread.holdsLock(holder[0]));
+            // 其他线程在回调执行期间可以访问熔断器
+            observedFromOtherThread.add(CompletableFuture.supplyAsync(holder[0]::getState).join());
+        });
+
+        CompletableFuture.runAsync(holder[0]::onFailure).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(false), lockHeld);
+        assertEquals(List.of(CircuitBreaker.State.OPEN), observedFromOtherThread);
+    }
+
+    @Test
+    void reentrantCallsFromListenerAreNotifiedInOrder() throws Exception {
+        List<String> transitions = new ArrayList<>();
+        CircuitBreaker[] holder = new CircuitBreaker[1];
+        holder[0] = new CircuitBreaker(1, 1, (from, to) -> {
+            transitions.add(from + "->" + to);
+            if (to == CircuitBreaker.State.OPEN) {
+                sleep(10);
+                // 回调中再次调用熔断器，触发的状态变化在本次回调结束后通知
+                holder[0].halfOpenIfDue();
+            }
+        });
+
+        holder[0].onFailure();
+
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN"), transitions);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.agro.util;
+
+import org.agro.util.ForecastGapDetector.Granularity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastGapDetectorTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final ZoneId SHANGHAI = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    void hourlySlotsAreEpochHours() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        assertEquals(0, detector.slotOf(Granularity.HOURLY, 3599));
+        assertEquals(1, detector.slotOf(Granularity.HOURLY, 3600));
+        assertEquals(-1, detector.slotOf(Granularity.HOURLY, -1));
+        assertEquals(7200, detector.slotStart(Granularity.HOURLY, 2));
+        assertEquals(10799, detector.slotEnd(Granularity.HOURLY, 2));
+    }
+
+    @Test
+    void dailySlotsFollowTheLocalDate() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        // UTC 2024-01-01 15:59:59 为上海 23:59:59，16:00 起为次日
+        long beforeMidnight = LocalDateTime.of(2024, 1, 1, 15, 59, 59).toEpochSecond(ZoneOffset.UTC);
+        assertEquals(LocalDate.of(2024, 1, 1).toEpochDay(), detector.slotOf(Granularity.DAILY, beforeMidnight));
+        assertEquals(LocalDate.of(2024, 1, 2).toEpochDay(), detector.slotOf(Granularity.DAILY, beforeMidnight + 1));
+
+        long slot = LocalDate.of(2024, 1, 2).toEpochDay();
+        assertEquals(beforeMidnight + 1, detector.slotStart(Granularity.DAILY, slot));
+        assertEquals(beforeMidnight + 86400, detector.slotEnd(Granularity.DAILY, slot));
+    }
+
+    @Test
+    void dailySlotsSpanDaylightSavingTransitions() {
+        ForecastGapDetector detector = new ForecastGapDetector(NEW_YORK);
+        long springForward = LocalDate.of(2024, 3, 10).toEpochDay();
+        long fallBack = LocalDate.of(2024, 11, 3).toEpochDay();
+
+        assertEquals(23 * 3600, length(detector, springForward));
+        assertEquals(25 * 3600, length(detector, fallBack));
+        assertEquals(24 * 3600, length(detector, springForward + 1));
+
+        // 夏令时切换当天的最后一秒仍属于当天
+        long lastSecond = detector.slotEnd(Granularity.DAILY, fallBack);
+        assertEquals(fallBack, detector.slotOf(Granularity.DAILY, lastSecond));
+        assertEquals(fallBack + 1, detector.slotOf(Granularity.DAILY, lastSecond + 1));
+        // 相邻时段首尾相接
+        assertEquals(detector.slotStart(Granularity.DAILY, fallBack + 1), lastSecond + 1);
+    }
+
+    @Test
+    void dailySlotStartsWhenMidnightDoesNotExist() {
+        // 2018-11-04 圣保罗零点进入夏令时，当天从01:00开始
+        ZoneId saoPaulo = ZoneId.of("America/Sao_Paulo");
+        ForecastGapDetector detector = new ForecastGapDetector(saoPaulo);
+        long slot = LocalDate.of(2018, 11, 4).toEpochDay();
+        long start = detector.slotStart(Granularity.DAILY, slot);
+        assertEquals(ZonedDateTime.of(2018, 11, 4, 1, 0, 0, 0, saoPaulo).toEpochSecond(), start);
+        assertEquals(slot, detector.slotOf(Granularity.DAILY, start));
+        assertEquals(slot - 1, detector.slotOf(Granularity.DAILY, start - 1));
+    }
+
+    @Test
+    void detectSplitsMissingSlotsByApiHorizon() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        long now = 100 * 3600 + 1800;
+        // 请求第98-105小时，API可返回第100-103小时，已存储第101小时
+        ForecastGapDetector.Gaps gaps = detector.detect(Granularity.HOURLY, 98 * 3600, 105 * 3600 + 59,
+                List.of(101 * 3600L + 10), now, 4);
+
+        assertEquals(7, gaps.getMissingCount());
+        assertEquals(Set.of(100L, 102L, 103L), gaps.getFetchable());
+        assertTrue(gaps.needsFetch());
+        // 从当前时段起请求到最后一个可补齐的时段
+        assertEquals(4, gaps.slotsToFetch());
+    }
+
+    @Test
+    void slotsToFetchStopsAtTheLastFetchableGap() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        long now = 100 * 3600;
+        ForecastGapDetector.Gaps gaps = detector.detect(Granularity.HOURLY, now, 110 * 3600,
+                List.of(102 * 3600L, 103 * 3600L), now, 96);
+
+        assertEquals(Set.of(100L, 101L, 104L, 105L, 106L, 107L, 108L, 109L, 110L), gaps.getFetchable());
+        assertEquals(11, gaps.slotsToFetch());
+    }
+
+    @Test
+    void noFetchWhenGapsAreOutsideTheHorizon() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        long now = 100 * 3600;
+        ForecastGapDetector.Gaps gaps = detector.detect(Granularity.HOURLY, 200 * 3600, 210 * 3600,
+                Collections.emptyList(), now, 96);
+
+        assertEquals(11, gaps.getMissingCount());
+        assertFalse(gaps.needsFetch());
+        assertEquals(0, gaps.slotsToFetch());
+    }
+
+    @Test
+    void storedDataOutsideTheRangeIsIgnored() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        ForecastGapDetector.Gaps gaps = detector.detect(Granularity.HOURLY, 10 * 3600, 11 * 3600,
+                List.of(5 * 3600L, 50 * 3600L, 10 * 3600L, 10 * 3600L + 60), 10 * 3600, 96);
+
+        assertEquals(1, gaps.getMissingCount());
+        assertEquals(Set.of(11L), gaps.getFetchable());
+    }
+
+    @Test
+    void dailyDetectUsesLocalDays() {
+        ForecastGapDetector detector = new ForecastGapDetector(NEW_YORK);
+        long now = ZonedDateTime.of(2024, 3, 9, 12, 0, 0, 0, NEW_YORK).toEpochSecond();
+        long end = ZonedDateTime.of(2024, 3, 12, 23, 0, 0, 0, NEW_YORK).toEpochSecond();
+        long storedMarch10 = ZonedDateTime.of(2024, 3, 10, 23, 30, 0, 0, NEW_YORK).toEpochSecond();
+
+        ForecastGapDetector.Gaps gaps = detector.detect(Granularity.DAILY, now, end, List.of(storedMarch10), now, 16);
+
+        long march9 = LocalDate.of(2024, 3, 9).toEpochDay();
+        assertEquals(Set.of(march9, march9 + 2, march9 + 3), gaps.getFetchable());
+        assertEquals(4, gaps.slotsToFetch());
+    }
+
+    @Test
+    void longRangesAreNotWalkedSlotBySlot() {
+        ForecastGapDetector detector = new ForecastGapDetector(SHANGHAI);
+        long now = 1_700_000_000L;
+        // 约3000年的小时级范围，只检查API可返回的96个时段
+        long end = now + 3000L * 365 * 86400;
+
+        ForecastGapDetector.Gaps gaps = assertTimeoutPreemptively(Duration.ofSeconds(2),
+                () -> detector.detect(Granularity.HOURLY, now, end, Collections.emptyList(), now, 96));
+
+        assertEquals(96, gaps.getFetchable().size());
+        assertEquals(96, gaps.slotsToFetch());
+        assertTrue(gaps.getMissingCount() > 26_000_000L);
+    }
+
+    private static long length(ForecastGapDetector detector, long slot) {
+        return detector.slotEnd(Granularity.DAILY, slot) - detector.slotStart(Granularity.DAILY, slot) + 1;
+    }
+}
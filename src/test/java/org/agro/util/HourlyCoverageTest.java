@@ -0,0 +1,138 @@
+package org.agro.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HourlyCoverageTest {
+
+    @Test
+    void hoursAndDaysUseFloorDivision() {
+        assertEquals(0, HourlyCoverage.hourOf(0));
+        assertEquals(0, HourlyCoverage.hourOf(3599));
+        assertEquals(1, HourlyCoverage.hourOf(3600));
+        assertEquals(-1, HourlyCoverage.hourOf(-1));
+
+        assertEquals(0, HourlyCoverage.dayOf(23));
+        assertEquals(1, HourlyCoverage.dayOf(24));
+        assertEquals(-1, HourlyCoverage.dayOf(-1));
+        assertEquals(-1, HourlyCoverage.dayOf(-24));
+        assertEquals(-2, HourlyCoverage.dayOf(-25));
+    }
+
+    @Test
+    void dayBoundariesFollowUtc() {
+        long lastHourOfDay = HourlyCoverage.hourOf(LocalDateTime.of(2024, 3, 1, 23, 30).toEpochSecond(ZoneOffset.UTC));
+        long day = HourlyCoverage.dayOf(lastHourOfDay);
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0).toLocalDate().toEpochDay(), day);
+        assertEquals(day + 1, HourlyCoverage.dayOf(lastHourOfDay + 1));
+    }
+
+    @Test
+    void markSetsTheHourBitOfItsDay() {
+        HourlyCoverage coverage = new HourlyCoverage();
+        coverage.mark(24);       // 第1天第0小时
+        coverage.mark(24 + 23);  // 第1天第23小时
+        coverage.mark(-1);       // 第-1天第23小时
+
+        assertEquals(Map.of(1L, 1 | (1 << 23), -1L, 1 << 23), coverage.getMasks());
+        assertTrue(coverage.isCovered(24));
+        assertTrue(coverage.isCovered(47));
+        assertFalse(coverage.isCovered(25));
+        assertFalse(coverage.isCovered(48));
+        assertTrue(coverage.isCovered(-1));
+        assertFalse(coverage.isCovered(0));
+    }
+
+    @Test
+    void addDayMergesAndDropsBitsBeyondTheDay() {
+        HourlyCoverage coverage = new HourlyCoverage();
+        coverage.addDay(5, 0b0101);
+        coverage.addDay(5, 0b1000 | (1 << 24) | (1 << 30));
+
+        assertEquals(0b1101, coverage.getMasks().get(5L));
+        assertFalse(coverage.isCovered(6 * 24));
+    }
+
+    @Test
+    void missingRangesMergeAcrossDayBoundaries() {
+        HourlyCoverage coverage = new HourlyCoverage();
+        coverage.addDay(0, HourlyCoverage.FULL_DAY_MASK & ~(1 << 23)); // 第0天只缺第23小时
+        coverage.addDay(1, HourlyCoverage.FULL_DAY_MASK & ~0b11);      // 第1天缺第0、1小时
+
+        List<HourlyCoverage.HourRange> ranges = coverage.missingRanges(0, 47, 168);
+
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 23, 25);
+    }
+
+    @Test
+    void missingRangesSplitAtMaxHours() {
+        HourlyCoverage coverage = new HourlyCoverage();
+        coverage.mark(10);
+
+        List<HourlyCoverage.HourRange> ranges = coverage.missingRanges(0, 20, 4);
+
+        assertEquals(6, ranges.size());
+        assertRange(ranges.get(0), 0, 3);
+        assertRange(ranges.get(1), 4, 7);
+        assertRange(ranges.get(2), 8, 9);
+        assertRange(ranges.get(3), 11, 14);
+        assertRange(ranges.get(4), 15, 18);
+        assertRange(ranges.get(5), 19, 20);
+    }
+
+    @Test
+    void fullyCoveredRangeHasNoMissingHours() {
+        HourlyCoverage coverage = new HourlyCoverage();
+        coverage.addDay(0, HourlyCoverage.FULL_DAY_MASK);
+        assertTrue(coverage.missingRanges(0, 23, 168).isEmpty());
+        assertRange(coverage.missingRanges(0, 24, 168).get(0), 24, 24);
+    }
+
+    @Test
+    void rangesSplitTheWholeInterval() {
+        List<HourlyCoverage.HourRange> ranges = HourlyCoverage.ranges(100, 109, 4);
+        assertEquals(3, ranges.size());
+        assertRange(ranges.get(2), 108, 109);
+        assertEquals(2, ranges.get(2).hours());
+        assertEquals(108 * 3600, ranges.get(2).getStartTime());
+        assertEquals(109 * 3600, ranges.get(2).getEndTime());
+        assertTrue(HourlyCoverage.ranges(10, 9, 4).isEmpty());
+    }
+
+    @Test
+    void settledHoursEndSettleHoursBeforeTheCurrentHour() {
+        long now = 1000 * 3600 + 1800;
+        assertEquals(976, HourlyCoverage.lastSettledHour(now, 24));
+        assertEquals(1000, HourlyCoverage.lastSettledHour(now, 0));
+        assertEquals(1000, HourlyCoverage.lastSettledHour(now, -5));
+    }
+
+    @Test
+    void markSettledOnlyMarksHoursUpToTheSettledBound() {
+        HourlyCoverage coverage = new HourlyCoverage();
+        coverage.markSettled(970, 980, 976);
+
+        for (long hour = 970; hour <= 976; hour++) {
+            assertTrue(coverage.isCovered(hour), "hour " + hour);
+        }
+        for (long hour = 977; hour <= 980; hour++) {
+            assertFalse(coverage.isCovered(hour), "hour " + hour);
+        }
+        // 整段都在近期时不标记任何小时
+        HourlyCoverage recent = new HourlyCoverage();
+        recent.markSettled(990, 999, 976);
+        assertTrue(recent.getMasks().isEmpty());
+    }
+
+    private static void assertRange(HourlyCoverage.HourRange range, long first, long last) {
+        assertEquals(first, range.getFirstHour(), "first hour of " + range);
+        assertEquals(last, range.getLastHour(), "last hour of " + range);
+    }
+}
@@ -0,0 +1,146 @@
+package org.agro.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeReservationsTest {
+
+    @Test
+    void firstClaimOwnsTheWholeRange() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> claim = reservations.claim("a", 10, 20);
+
+        assertEquals(1, claim.getOwned().size());
+        assertBounds(claim.getOwned().get(0), 10, 20);
+        assertTrue(claim.getBorrowed().isEmpty());
+        assertEquals(1, reservations.inFlightCount());
+    }
+
+    @Test
+    void overlappingClaimBorrowsTheOverlapAndOwnsTheRest() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> first = reservations.claim("a", 10, 20);
+        RangeReservations.Claim<String> second = reservations.claim("a", 5, 25);
+
+        assertEquals(List.of(first.getOwned().get(0)), second.getBorrowed());
+        assertEquals(2, second.getOwned().size());
+        assertBounds(second.getOwned().get(0), 5, 9);
+        assertBounds(second.getOwned().get(1), 21, 25);
+        assertEquals(3, reservations.inFlightCount());
+    }
+
+    @Test
+    void claimInsideAnExistingRangeOwnsNothing() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> first = reservations.claim("a", 10, 20);
+        RangeReservations.Claim<String> inner = reservations.claim("a", 12, 15);
+
+        assertTrue(inner.getOwned().isEmpty());
+        assertEquals(List.of(first.getOwned().get(0)), inner.getBorrowed());
+    }
+
+    @Test
+    void claimBridgingTwoRangesOwnsOnlyTheGap() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> left = reservations.claim("a", 0, 9);
+        RangeReservations.Claim<String> right = reservations.claim("a", 20, 29);
+        RangeReservations.Claim<String> bridge = reservations.claim("a", 5, 25);
+
+        assertEquals(List.of(left.getOwned().get(0), right.getOwned().get(0)), bridge.getBorrowed());
+        assertEquals(1, bridge.getOwned().size());
+        assertBounds(bridge.getOwned().get(0), 10, 19);
+    }
+
+    @Test
+    void adjacentRangesDoNotOverlap() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        reservations.claim("a", 0, 9);
+        RangeReservations.Claim<String> next = reservations.claim("a", 10, 19);
+
+        assertTrue(next.getBorrowed().isEmpty());
+        assertBounds(next.getOwned().get(0), 10, 19);
+    }
+
+    @Test
+    void keysAreIndependent() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        reservations.claim("a", 0, 9);
+        RangeReservations.Claim<String> other = reservations.claim("b", 0, 9);
+
+        assertTrue(other.getBorrowed().isEmpty());
+        assertEquals(1, other.getOwned().size());
+    }
+
+    @Test
+    void borrowersSeeTheOwnersResult() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> owner = reservations.claim("a", 0, 9);
+        RangeReservations.Claim<String> borrower = reservations.claim("a", 0, 9);
+
+        owner.getOwned().get(0).complete("rows");
+        owner.release();
+
+        assertEquals("rows", borrower.getBorrowed().get(0).getFuture().join());
+        assertEquals(0, reservations.inFlightCount());
+    }
+
+    @Test
+    void completeWithPropagatesAsyncResultsAndFailures() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> claim = reservations.claim("a", 0, 9);
+        CompletableFuture<String> fetch = new CompletableFuture<>();
+        claim.getOwned().get(0).completeWith(fetch);
+
+        fetch.completeExceptionally(new IllegalStateException("boom"));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> claim.getOwned().get(0).getFuture().join());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void releaseBeforeCompletionCancelsWaiters() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> owner = reservations.claim("a", 0, 9);
+        RangeReservations.Claim<String> borrower = reservations.claim("a", 0, 9);
+
+        owner.release();
+
+        assertThrows(CancellationException.class, () -> borrower.getBorrowed().get(0).getFuture().join());
+    }
+
+    @Test
+    void releasedRangesCanBeClaimedAgain() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> first = reservations.claim("a", 0, 9);
+        first.getOwned().get(0).complete("rows");
+        first.release();
+
+        RangeReservations.Claim<String> again = reservations.claim("a", 0, 9);
+        assertTrue(again.getBorrowed().isEmpty());
+        assertBounds(again.getOwned().get(0), 0, 9);
+    }
+
+    @Test
+    void releaseOnlyRemovesTheClaimsOwnRanges() {
+        RangeReservations<String, String> reservations = new RangeReservations<>();
+        RangeReservations.Claim<String> first = reservations.claim("a", 10, 20);
+        RangeReservations.Claim<String> second = reservations.claim("a", 0, 30);
+
+        second.release();
+
+        assertEquals(1, reservations.inFlightCount());
+        assertFalse(first.getOwned().get(0).getFuture().isDone());
+    }
+
+    private static void assertBounds(RangeReservations.Reservation<?> reservation, long first, long last) {
+        assertEquals(first, reservation.getFirst());
+        assertEquals(last, reservation.getLast());
+    }
+}
@@ -0,0 +1,118 @@
+package org.agro.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = executor.submit(() -> flight.execute("a", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return 42;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> flight.execute("a", () -> {
+                    loads.incrementAndGet();
+                    return -1;
+                })));
+            }
+            // 等待跟随者进入等待后再放行
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(42, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0, flight.inFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failureIsRethrownAndNotCached() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> flight.execute("a", () -> {
+            throw failure;
+        })));
+        assertEquals(0, flight.inFlightCount());
+        assertEquals(7, flight.execute("a", () -> 7));
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        assertEquals("a", flight.execute("a", () -> "a"));
+        assertEquals("b", flight.execute("b", () -> "b"));
+    }
+
+    @Test
+    void asyncCallersShareOneLoadAndGetIndependentCopies() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        CompletableFuture<Integer> source = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<Integer> first = flight.executeAsync("a", () -> {
+            loads.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<Integer> second = flight.executeAsync("a", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(-1);
+        });
+        assertEquals(1, flight.inFlightCount());
+
+        // 一个调用方取消不影响其他调用方
+        first.cancel(true);
+        source.complete(5);
+
+        assertEquals(5, second.join());
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void asyncLoaderThrowingCompletesExceptionally() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        CompletableFuture<Integer> result = flight.executeAsync("a", () -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}